@@ -0,0 +1,66 @@
+package org.xtra;
+
+enum Account {
+    ASSETS(Type.LONG),
+    BUSINESS_PROFIT(Type.LONG),
+    CAPITAL(Type.LONG),
+    COMMENT(Type.STRING),
+    CONST_OF_SALES(Type.LONG),
+    CURRENT_ASSETS(Type.LONG),
+    CURRENT_LIABILITIES(Type.LONG),
+    FINANCIAL_COST(Type.LONG),
+    GROSS_PROFIT_ON_SALES(Type.LONG),
+    INCOME(Type.LONG),
+    LIABILITIES(Type.LONG),
+    MARKET_CAPITALIZATION(Type.LONG),
+    NON_CURRENT_ASSETS(Type.LONG),
+    NON_CURRENT_LIABILITIES(Type.LONG),
+    OWNERS_OF_NON_PARENT_EQUITY(Type.LONG),
+    OWNERS_OF_PARENT_EQUITY(Type.LONG),
+    PBR(Type.DOUBLE),
+    QUARTERLY_INCOME(Type.LONG),
+    QUARTERLY_ROE(Type.DOUBLE),
+    QUARTERLY_SALES(Type.LONG),
+    RATING(Type.STRING),
+    ROE(Type.DOUBLE),
+    SALES(Type.LONG),
+    STOCK(Type.LONG),
+    YEAR_SALES(Type.LONG);
+
+    enum Type {
+        LONG,
+        DOUBLE,
+        STRING
+    }
+
+    private static final int[] slotCounts = new int[Type.values().length];
+
+    static {
+        for(Account account : Account.values()) {
+            account.slot = slotCounts[account.type.ordinal()]++;
+        }
+    }
+
+    private final Type type;
+    private int slot;
+
+    Account(Type type) {
+        this.type = type;
+    }
+
+    public Type getType() {
+        return  this.type;
+    }
+
+    int getSlot() {
+        return  this.slot;
+    }
+
+    long getMask() {
+        return  1L << this.ordinal();
+    }
+
+    static int getSlotCount(Type type) {
+        return  slotCounts[type.ordinal()];
+    }
+}
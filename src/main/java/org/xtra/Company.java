@@ -4,55 +4,51 @@ import org.json.JSONObject;
 
 import javax.management.InvalidAttributeValueException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 class Company {
-    public static final String ITEM_ASSETS = "ASSETS";
-    public static final String ITEM_CAPITAL = "CAPITAL";
-//    public static final String ITEM_COMMENT = "COMMENT";
-    public static final String ITEM_INCOME = "INCOME";
-//    public static final String ITEM_LIABILITIES = "LIABILITIES";
-//    public static final String ITEM_MARKET_CAPITALIZATION = "MARKET_CAPITALIZATION";
-//    public static final String ITEM_PBR = "PBR";
-    public static final String ITEM_QUARTERLY_ROE = "QUARTERLY_ROE";
-    public static final String ITEM_QUARTERLY_SALES = "QUARTERLY_SALES";
-    public static final String ITEM_QUARTERLY_INCOME= "QUARTERLY_INCOME";
-//    public static final String ITEM_RATING = "RATING";
-//    public static final String ITEM_ROE = "ROE";
-    public static final String ITEM_SALES = "SALES";
-//    public static final String ITEM_STOCK = "STOCK";
+    private static final StringDictionary dictionary = StringDictionary.getShared();
 
     private final String code;
-    private       String name;
-    private final String industryCode;
-    private final String categories;
-    private final String market;
-    private       String comment;
-    private       double pbr;
-    private       long   marketCapitalization;
-    private final Map<Long, Finance> yearlyFinancial;
-    private final Map<Long, Finance> quarterlyFinancial;
+    private final CompanyCode companyCode;
+    private volatile String name;
+    private final int industryCodeId;
+    private final int categoriesId;
+    private final int marketId;
+    private volatile String comment;
+    private volatile double pbr;
+    private volatile long   marketCapitalization;
+    private final FinanceSeries yearlyFinancial;
+    private final FinanceSeries quarterlyFinancial;
 
     Company(String market, String code, String name, String industryCode, String categories) {
         this(market, code, name, industryCode, categories, "") ;
     }
 
     Company(String market, String code, String name, String industryCode, String categories, String comment) {
-        this.market = market;
+        this.marketId = dictionary.getId(market);
         this.code = code;
+        this.companyCode = new CompanyCode(code);
         this.name = name;
-        this.industryCode = industryCode;
-        this.categories = categories;
+        this.industryCodeId = dictionary.getId(industryCode);
+        this.categoriesId = dictionary.getId(categories);
         this.comment = comment;
         this.pbr = 0.0;
-        this.yearlyFinancial = new HashMap<>();
-        this.quarterlyFinancial = new HashMap<>();
+        this.yearlyFinancial = FinanceSeries.yearly();
+        this.quarterlyFinancial = FinanceSeries.quarterly();
     }
 
     public String getCode() {
         return  this.code;
     }
 
+    public CompanyCode getCompanyCode() {
+        return  this.companyCode;
+    }
+
+    public int getCodeKey() {
+        return  this.companyCode.getKey();
+    }
+
     public String getName() {
         return  this.name;
     }
@@ -62,15 +58,23 @@ class Company {
     }
 
     public String getIndustryCode() {
-        return  this.industryCode;
+        return  dictionary.get(this.industryCodeId);
+    }
+
+    public int getIndustryCodeId() {
+        return  this.industryCodeId;
     }
 
     public String getCategories() {
-        return  this.categories;
+        return  dictionary.get(this.categoriesId);
     }
 
     public String getMarket() {
-        return  this.market;
+        return  dictionary.get(this.marketId);
+    }
+
+    public int getMarketId() {
+        return  this.marketId;
     }
 
     public String getComment() {
@@ -87,60 +91,55 @@ class Company {
     public long getMarketCapitalization() { return this.marketCapitalization; }
     public void setMarketCapitalization(long marketCapitalization) { this.marketCapitalization = marketCapitalization; }
 
-    public Map<Long, Finance> getQuarterlyFinancial() {
+    public FinanceSeries getYearlyFinancial() {
+        return  this.yearlyFinancial;
+    }
+
+    public FinanceSeries getQuarterlyFinancial() {
         return  this.quarterlyFinancial;
     }
 
     public Set<Long> getYears() {
-        Set<Long> years = this.yearlyFinancial.keySet().stream().collect(Collectors.toCollection(LinkedHashSet::new));
-        years.addAll(this.quarterlyFinancial.keySet().stream().map(q->q/100).sorted().collect(Collectors.toCollection(LinkedHashSet::new)));
+        Set<Long> years = new TreeSet<>();
+        this.yearlyFinancial.forEach((year, finance) -> years.add(year));
+        this.quarterlyFinancial.forEach((quarter, finance) -> years.add(quarter / 100));
 
         return  years;
     }
 
     public Set<Long> getQuarterlies() {
-        return new LinkedHashSet<>(this.quarterlyFinancial.keySet());
+        Set<Long> quarters = new LinkedHashSet<>();
+        this.quarterlyFinancial.forEach((quarter, finance) -> quarters.add(quarter));
+
+        return  quarters;
     }
 
-    public Map<Long, Object> getQuarterlyItems(String item) {
+    public Map<Long, Object> getQuarterlyItems(Account item) {
         Map<Long, Object> quarterItems = new TreeMap<>();
-        Set<Long> quarters = this.quarterlyFinancial.keySet();
 
-        for(Long quarter : quarters) {
-            try {
-                quarterItems.put(quarter, this.quarterlyFinancial.get(quarter).getAccount(item));
-            } catch (NullPointerException ignore) {}
-        }
+        this.quarterlyFinancial.forEach((quarter, finance) -> {
+            if (finance.hasAccount(item)) {
+                quarterItems.put(quarter, finance.getAccount(item));
+            }
+        });
 
         return  quarterItems;
     }
 
     public Long getFirstQuarterly() {
-        Optional<Long> optionalResult = quarterlyFinancial.keySet().stream().min(Long::compare);
-        if (optionalResult.isPresent()) {
-            return optionalResult.get();
-        }
-
-        throw new NullPointerException();
+        return  this.quarterlyFinancial.getFirstSession();
     }
 
     public Long getLastQuarterly() {
-        Optional<Long> optionalResult = quarterlyFinancial.keySet().stream().max(Long::compare);
-        if (optionalResult.isPresent()) {
-            return optionalResult.get();
-        }
-
-        throw new NullPointerException();
+        return  this.quarterlyFinancial.getLastSession();
     }
 
-    public Map<Long, Object> getValues(String item, Long firstQuarterly, Long lastQuarterly) {
-        Map<Long, Object> values = new HashMap<>();
+    public Map<Long, Object> getValues(Account item, Long firstQuarterly, Long lastQuarterly) {
+        Map<Long, Object> values = new LinkedHashMap<>();
 
-        this.quarterlyFinancial.forEach((quarter, finance)-> {
-            if ((firstQuarterly <= quarter && quarter <= lastQuarterly) || (lastQuarterly <= quarter && quarter <= firstQuarterly))  {
-                try {
-                    values.put(quarter, finance.getAccount(item));
-                } catch(NullPointerException ignore) {}
+        this.quarterlyFinancial.forEach(Math.min(firstQuarterly, lastQuarterly), Math.max(firstQuarterly, lastQuarterly), (quarter, finance)-> {
+            if (finance.hasAccount(item)) {
+                values.put(quarter, finance.getAccount(item));
             }
         });
 
@@ -152,86 +151,108 @@ class Company {
     }
 
     public Finance getFinance(Long year, Long quarter) throws NullPointerException {
-        Long key = year*100 + quarter;
-        if (this.quarterlyFinancial.containsKey(key)) {
-            return  this.quarterlyFinancial.get(key);
+        Finance finance = this.quarterlyFinancial.get(year * 100 + quarter);
+        if (finance != null) {
+            return  finance;
         }
 
         throw new NullPointerException("Finance[" + year + ":Q" + quarter + " is not exist");
     }
 
-    public boolean hasAccount(String title, Long session) {
-        if (session > 9999) {
-            if (this.quarterlyFinancial.containsKey(session)) {
-                return  this.quarterlyFinancial.get(session).hasAccount(title);
-            }
+    private FinanceSeries getSeries(Long session) {
+        return  (session > 9999) ? this.quarterlyFinancial : this.yearlyFinancial;
+    }
+
+    public synchronized boolean hasAccount(Account account, Long session) {
+        Finance finance = this.getSeries(session).get(session);
+
+        return  (finance != null) && finance.hasAccount(account);
+    }
+
+    private Finance getSessionFinance(Account account, Long session) throws NullPointerException {
+        Finance finance = this.getSeries(session).get(session);
+        if (finance != null) {
+            return  finance;
         }
-        else {
-            if (this.yearlyFinancial.containsKey(session)) {
-                return  this.yearlyFinancial.get(session).hasAccount(title);
-            }
+
+        throw new NullPointerException(account + " of " + session + " is not exist");
+    }
+
+    public synchronized Object getAccount(Account account, Long session) {
+        return  this.getSessionFinance(account, session).getAccount(account);
+    }
+
+    public synchronized long getLong(Account account, Long session) {
+        return  this.getSessionFinance(account, session).getLong(account);
+    }
+
+    public synchronized double getDouble(Account account, Long session) {
+        return  this.getSessionFinance(account, session).getDouble(account);
+    }
+
+    public synchronized OptionalLong findLong(Account account, long session) {
+        Finance finance = this.getSeries(session).get(session);
+        if (finance == null) {
+            return  OptionalLong.empty();
         }
 
-        return  false;
+        return  finance.findLong(account);
     }
 
-    public Object getAccount(String title, Long session) {
-        if (session > 9999) {
-            if (this.quarterlyFinancial.containsKey(session)) {
-                return (this.quarterlyFinancial.get(session)).getAccount(title);
-            }
+    public synchronized OptionalDouble findDouble(Account account, long session) {
+        Finance finance = this.getSeries(session).get(session);
+        if (finance == null) {
+            return  OptionalDouble.empty();
         }
-        else {
-            if (this.yearlyFinancial.containsKey(session)) {
-                return (this.yearlyFinancial.get(session)).getAccount(title);
-            }
+
+        return  finance.findDouble(account);
+    }
+
+    public synchronized void putAccount(Account account, Long session, long value) {
+        this.getSeries(session).getOrCreate(session).setLong(account, value);
+    }
+
+    public synchronized void putAccount(Account account, Long session, double value) {
+        this.getSeries(session).getOrCreate(session).setDouble(account, value);
+    }
+
+    public synchronized void putAccount(Account account, Long session, String value) throws InvalidAttributeValueException {
+        if (value.length() == 0) {
+            throw new InvalidAttributeValueException();
         }
 
-       throw new NullPointerException(title + " of " + session + " is not exist");
+        this.getSeries(session).getOrCreate(session).setString(account, value);
     }
 
-    public void setAccount(String title, Long year, Object value) throws InvalidAttributeValueException {
+    public synchronized void setAccount(Account account, Long year, Object value) throws InvalidAttributeValueException {
         if (value != null) {
             if ((value instanceof String) && (((String) value).length() == 0)) {
                 throw new InvalidAttributeValueException();
             }
 
-            if (this.yearlyFinancial.containsKey(year)) {
-                this.yearlyFinancial.get(year).setAccount(title, value);
-            } else {
-                Finance finance = new Finance();
-                finance.setAccount(title, value);
-                this.yearlyFinancial.put(year, finance);
-            }
+            this.yearlyFinancial.getOrCreate(year).setAccount(account, value);
         }
     }
 
-    public void setAccount(String title, Long year, Long quarter, Object value) throws InvalidAttributeValueException {
+    public synchronized void setAccount(Account account, Long year, Long quarter, Object value) throws InvalidAttributeValueException {
         if (value != null) {
             if ((value instanceof String) && (((String) value).length() == 0)) {
                 throw new InvalidAttributeValueException();
             }
 
-            Long key = year * 100 + quarter;
-            if (this.quarterlyFinancial.containsKey(key)) {
-                this.quarterlyFinancial.get(key).setAccount(title, value);
-            } else {
-                Finance finance = new Finance();
-                finance.setAccount(title, value);
-                this.quarterlyFinancial.put(key, finance);
-            }
+            this.quarterlyFinancial.getOrCreate(year * 100 + quarter).setAccount(account, value);
         }
     }
 
 
-    public void setAccount(String title, String fullQuarterly, Object value) throws InvalidAttributeValueException {
+    public void setAccount(Account account, String fullQuarterly, Object value) throws InvalidAttributeValueException {
         if (value != null) {
             if (fullQuarterly.matches("\\d\\d\\d\\d")) {
-                this.setAccount(title,
+                this.setAccount(account,
                         Long.parseLong(fullQuarterly.substring(0, 4)),
                         value);
             } else if (fullQuarterly.matches("\\d\\d\\d\\d\\d\\d")) {
-                this.setAccount(title,
+                this.setAccount(account,
                         Long.parseLong(fullQuarterly.substring(0, 4)),
                         Long.parseLong(fullQuarterly.substring(4, 6)),
                         value);
@@ -239,71 +260,76 @@ class Company {
         }
     }
 
-    public void calculate() {
-        List<Long> quarters = getQuarterlies().stream().sorted().collect(Collectors.toList());
-        quarters.forEach(quarter -> {
-            try {
-                Finance finance = getFinance(quarter / 100, quarter % 100);
-
-                if ((quarter % 100 / 3) == 1) {
-                    if (!finance.hasAccount(ITEM_QUARTERLY_SALES) && finance.hasAccount(ITEM_SALES)) {
-                        finance.setAccount(ITEM_QUARTERLY_SALES, finance.getAccount(ITEM_SALES));
-                    }
+    public synchronized void merge(Company company) {
+        company.yearlyFinancial.forEach((year, finance) -> this.yearlyFinancial.getOrCreate(year).merge(finance));
+        company.quarterlyFinancial.forEach((quarter, finance) -> this.quarterlyFinancial.getOrCreate(quarter).merge(finance));
+    }
 
-                    if (!finance.hasAccount(ITEM_QUARTERLY_INCOME) && finance.hasAccount(ITEM_INCOME)) {
-                        finance.setAccount(ITEM_QUARTERLY_INCOME, finance.getAccount(ITEM_INCOME));
-                    }
+    public synchronized void calculate() {
+        this.quarterlyFinancial.forEach(this::calculate);
+    }
 
+    private void calculate(long quarter, Finance finance) {
+        if ((quarter % 100 / 3) == 1) {
+            if (!finance.hasAccount(Account.QUARTERLY_SALES) && finance.hasAccount(Account.SALES)) {
+                finance.setLong(Account.QUARTERLY_SALES, finance.getLong(Account.SALES));
+            }
 
-                } else {
-                    long previousQuarterly = quarter - 3;
+            if (!finance.hasAccount(Account.QUARTERLY_INCOME) && finance.hasAccount(Account.INCOME)) {
+                finance.setLong(Account.QUARTERLY_INCOME, finance.getLong(Account.INCOME));
+            }
+        } else {
+            Finance previousFinance = this.quarterlyFinancial.get(quarter - 3);
+            if (previousFinance == null) {
+                return;
+            }
 
-                    Finance previousFinance = getFinance(previousQuarterly / 100, previousQuarterly % 100);
+            if (!finance.hasAccount(Account.QUARTERLY_SALES)) {
+                OptionalLong sales = finance.findLong(Account.SALES);
+                OptionalLong previousSales = previousFinance.findLong(Account.SALES);
+                if (sales.isEmpty() || previousSales.isEmpty()) {
+                    return;
+                }
 
-                    if (!finance.hasAccount(ITEM_QUARTERLY_SALES)) {
-                        long sales = (long) finance.getAccount(ITEM_SALES);
-                        sales -= (long) previousFinance.getAccount(ITEM_SALES);
-                        finance.setAccount(ITEM_QUARTERLY_SALES, sales);
-                    }
+                finance.setLong(Account.QUARTERLY_SALES, sales.getAsLong() - previousSales.getAsLong());
+            }
 
-                    if (!finance.hasAccount(ITEM_QUARTERLY_INCOME)) {
-                        long income = (long) finance.getAccount(ITEM_INCOME);
-                        income -= (long) previousFinance.getAccount(ITEM_INCOME);
-                        finance.setAccount(ITEM_QUARTERLY_INCOME, income);
-                    }
+            if (!finance.hasAccount(Account.QUARTERLY_INCOME)) {
+                OptionalLong income = finance.findLong(Account.INCOME);
+                OptionalLong previousIncome = previousFinance.findLong(Account.INCOME);
+                if (income.isEmpty() || previousIncome.isEmpty()) {
+                    return;
                 }
 
-                if (!finance.hasAccount(ITEM_QUARTERLY_ROE)) {
-                    if ((Long)finance.getAccount(ITEM_QUARTERLY_INCOME) < 0L && (Long)finance.getAccount(ITEM_CAPITAL) < 0L) {
-                        finance.setAccount(ITEM_QUARTERLY_ROE, 0.0D);
-                    } else {
-                        finance.setAccount(ITEM_QUARTERLY_ROE,
-                            ((Long) finance.getAccount(ITEM_QUARTERLY_INCOME) * 1.0 / (Long) finance.getAccount(ITEM_CAPITAL)));
-                    }
-                }
+                finance.setLong(Account.QUARTERLY_INCOME, income.getAsLong() - previousIncome.getAsLong());
+            }
+        }
 
-            } catch (NullPointerException ignore) {
+        if (!finance.hasAccount(Account.QUARTERLY_ROE)) {
+            OptionalLong income = finance.findLong(Account.QUARTERLY_INCOME);
+            OptionalLong capital = finance.findLong(Account.CAPITAL);
+            if (income.isEmpty() || capital.isEmpty()) {
+                return;
             }
-        });
 
-        try {
-            Finance finance = getFinance(getLastQuarterly());
-            pbr = marketCapitalization / ((double) finance.getAccount(ITEM_ASSETS));
-        } catch (Exception ignore) {
+            if (income.getAsLong() < 0L && capital.getAsLong() < 0L) {
+                finance.setDouble(Account.QUARTERLY_ROE, 0.0D);
+            } else {
+                finance.setDouble(Account.QUARTERLY_ROE, (income.getAsLong() * 1.0 / capital.getAsLong()));
+            }
         }
-
     }
 
     public JSONObject toJson() {
         JSONObject root = new JSONObject();
         JSONObject information = new JSONObject();
 
-        information.put("시장", this.market);
+        information.put("시장", this.getMarket());
         information.put("종목코드", this.code);
         information.put("이름", this.name);
-        information.put("산업코드", this.industryCode);
-        information.put("업종", this.categories);
-        information.put("설명", this.comment);
+        information.put("산업코드", this.getIndustryCode());
+        information.put("업종", this.getCategories());
+        information.put("설명", this.getComment());
         information.put("PBR", this.pbr);
         information.put("시총", this.marketCapitalization);
         root.put("기본정보", information);
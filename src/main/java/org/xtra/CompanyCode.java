@@ -0,0 +1,83 @@
+package org.xtra;
+
+import java.util.Objects;
+
+final class CompanyCode implements Comparable<CompanyCode> {
+    public static final int INVALID = Integer.MAX_VALUE;
+
+    private final String code;
+    private final int key;
+
+    CompanyCode(String code) {
+        this.code = code;
+        this.key = encode(code);
+    }
+
+    public String getCode() {
+        return  this.code;
+    }
+
+    public int getKey() {
+        return  this.key;
+    }
+
+    public static int encode(String code) {
+        if ((code == null) || (code.length() < 2)) {
+            return  INVALID;
+        }
+
+        long value = 0;
+        for(int i = 1 ; i < code.length() ; i++) {
+            char ch = code.charAt(i);
+            if ((ch < '0') || (ch > '9')) {
+                return  INVALID;
+            }
+
+            value = value * 10 + (ch - '0');
+            if (value >= INVALID) {
+                return  INVALID;
+            }
+        }
+
+        return  (int) value;
+    }
+
+    @Override
+    public int compareTo(CompanyCode other) {
+        int result = Integer.compare(this.key, other.key);
+        if ((result != 0) || (this.code == other.code)) {
+            return  result;
+        }
+
+        if ((this.code == null) || (other.code == null)) {
+            return  (this.code == null) ? -1 : 1;
+        }
+
+        return  this.code.compareTo(other.code);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return  true;
+        }
+
+        if (!(object instanceof CompanyCode)) {
+            return  false;
+        }
+
+        CompanyCode other = (CompanyCode) object;
+
+        return  (this.key == other.key) && Objects.equals(this.code, other.code);
+    }
+
+    @Override
+    public int hashCode() {
+        return  this.key;
+    }
+
+    @Override
+    public String toString() {
+        return  this.code;
+    }
+}
@@ -0,0 +1,130 @@
+package org.xtra;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+public class CompanyFilter {
+    private static final StringDictionary dictionary = StringDictionary.getShared();
+
+    private final BitSet marketIds;
+    private final BitSet industryCodeIds;
+    private final Set<String> codes;
+    private final NavigableMap<String, String> codeRanges;
+    private Pattern namePattern;
+
+    public CompanyFilter() {
+        this.marketIds = new BitSet();
+        this.industryCodeIds = new BitSet();
+        this.codes = new TreeSet<>();
+        this.codeRanges = new TreeMap<>();
+        this.namePattern = null;
+    }
+
+    public void addMarket(String market) {
+        this.marketIds.set(dictionary.getId(market.trim()));
+    }
+
+    public void addIndustryCode(String industryCode) {
+        this.industryCodeIds.set(dictionary.getId(industryCode.trim()));
+    }
+
+    public void addCode(String code) {
+        String[] fields = code.trim().split("-");
+        if (fields.length == 2) {
+            String first = toItemCode(fields[0]);
+            String last = toItemCode(fields[1]);
+            if (first.compareTo(last) > 0) {
+                throw new IllegalArgumentException("Invalid code range : " + code);
+            }
+
+            this.codeRanges.merge(first, last, (current, added) -> (current.compareTo(added) >= 0) ? current : added);
+        } else if (fields.length == 1) {
+            this.codes.add(toItemCode(fields[0]));
+        } else {
+            throw new IllegalArgumentException("Invalid code : " + code);
+        }
+    }
+
+    public void setNamePattern(String regex) {
+        this.namePattern = (regex != null) ? Pattern.compile(regex) : null;
+    }
+
+    public boolean isEmpty() {
+        return  this.marketIds.isEmpty() && this.industryCodeIds.isEmpty() && this.codes.isEmpty()
+                && this.codeRanges.isEmpty() && (this.namePattern == null);
+    }
+
+    public boolean accept(Company company) {
+        return  this.accept(company.getMarketId(), company.getCode(), company.getName(), company.getIndustryCodeId());
+    }
+
+    public boolean accept(String market, String code, String name, String industryCode) {
+        return  this.accept(dictionary.findId(market), code, name, dictionary.findId(industryCode));
+    }
+
+    private boolean accept(int marketId, String code, String name, int industryCodeId) {
+        if (!this.marketIds.isEmpty() && !this.contains(this.marketIds, marketId)) {
+            return  false;
+        }
+
+        if (!this.industryCodeIds.isEmpty() && !this.contains(this.industryCodeIds, industryCodeId)) {
+            return  false;
+        }
+
+        if ((!this.codes.isEmpty() || !this.codeRanges.isEmpty()) && !this.acceptCode(code)) {
+            return  false;
+        }
+
+        return  (this.namePattern == null) || ((name != null) && this.namePattern.matcher(name).find());
+    }
+
+    private boolean contains(BitSet ids, int id) {
+        return  (id != StringDictionary.NONE) && ids.get(id);
+    }
+
+    private boolean acceptCode(String code) {
+        if (code == null) {
+            return  false;
+        }
+
+        String itemCode = toItemCode(code);
+        if (this.codes.contains(itemCode)) {
+            return  true;
+        }
+
+        for(Map.Entry<String, String> range : this.codeRanges.headMap(itemCode, true).entrySet()) {
+            if (itemCode.compareTo(range.getValue()) <= 0) {
+                return  true;
+            }
+        }
+
+        return  false;
+    }
+
+    private static String toItemCode(String code) {
+        String itemCode = code.trim();
+        String digits = itemCode.startsWith("A") ? itemCode.substring(1) : itemCode;
+        if (digits.matches("[0-9]{1,6}")) {
+            return  String.format("A%06d", Integer.parseInt(digits));
+        } else if (digits.matches("[0-9]+")) {
+            return  "A" + digits;
+        }
+
+        return  itemCode;
+    }
+
+    private static Set<String> toNames(BitSet ids) {
+        Set<String> names = new TreeSet<>();
+        ids.stream().forEach(id -> names.add(dictionary.get(id)));
+
+        return  names;
+    }
+
+    public String toString() {
+        return  "markets=" + toNames(this.marketIds)
+                + ",industries=" + toNames(this.industryCodeIds)
+                + ",codes=" + this.codes
+                + ",ranges=" + this.codeRanges
+                + ",name=" + ((this.namePattern != null) ? this.namePattern.pattern() : "");
+    }
+}
@@ -0,0 +1,207 @@
+package org.xtra;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+class CompanyRegistry extends AbstractMap<String, Company> implements ConcurrentMap<String, Company> {
+    private final ConcurrentMap<String, Company> companies;
+    private final ConcurrentNavigableMap<CompanyCode, Company> index;
+    private final Set<Entry<String, Company>> entries;
+
+    CompanyRegistry() {
+        this.companies = new ConcurrentHashMap<>();
+        this.index = new ConcurrentSkipListMap<>();
+        this.entries = new EntrySet();
+    }
+
+    public List<Company> getSortedCompanies() {
+        return  new ArrayList<>(this.index.values());
+    }
+
+    @Override
+    public int size() {
+        return  this.companies.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return  this.companies.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return  this.companies.containsKey(key);
+    }
+
+    @Override
+    public Company get(Object key) {
+        return  this.companies.get(key);
+    }
+
+    @Override
+    public Company put(String key, Company company) {
+        AtomicReference<Company> previous = new AtomicReference<>();
+        this.companies.compute(key, (code, current) -> {
+            previous.set(current);
+            this.reindex(current, company);
+            return  company;
+        });
+
+        return  previous.get();
+    }
+
+    @Override
+    public Company putIfAbsent(String key, Company company) {
+        AtomicReference<Company> previous = new AtomicReference<>();
+        this.companies.compute(key, (code, current) -> {
+            if (current != null) {
+                previous.set(current);
+                return  current;
+            }
+
+            this.reindex(null, company);
+            return  company;
+        });
+
+        return  previous.get();
+    }
+
+    @Override
+    public Company computeIfAbsent(String key, Function<? super String, ? extends Company> factory) {
+        return  this.companies.computeIfAbsent(key, code -> {
+            Company company = factory.apply(code);
+            this.reindex(null, company);
+            return  company;
+        });
+    }
+
+    @Override
+    public Company merge(String key, Company company,
+                         BiFunction<? super Company, ? super Company, ? extends Company> remapping) {
+        return  this.companies.compute(key, (code, current) -> {
+            Company merged = (current != null) ? remapping.apply(current, company) : company;
+            this.reindex(current, merged);
+            return  merged;
+        });
+    }
+
+    @Override
+    public Company remove(Object key) {
+        Company previous = this.companies.remove(key);
+        this.reindex(previous, null);
+
+        return  previous;
+    }
+
+    @Override
+    public boolean remove(Object key, Object company) {
+        if (!this.companies.remove(key, company)) {
+            return  false;
+        }
+
+        this.reindex((Company) company, null);
+
+        return  true;
+    }
+
+    @Override
+    public boolean replace(String key, Company oldCompany, Company newCompany) {
+        AtomicReference<Boolean> replaced = new AtomicReference<>(false);
+        this.companies.computeIfPresent(key, (code, current) -> {
+            if (!current.equals(oldCompany)) {
+                return  current;
+            }
+
+            replaced.set(true);
+            this.reindex(current, newCompany);
+            return  newCompany;
+        });
+
+        return  replaced.get();
+    }
+
+    @Override
+    public Company replace(String key, Company company) {
+        AtomicReference<Company> previous = new AtomicReference<>();
+        this.companies.computeIfPresent(key, (code, current) -> {
+            previous.set(current);
+            this.reindex(current, company);
+            return  company;
+        });
+
+        return  previous.get();
+    }
+
+    @Override
+    public void clear() {
+        this.companies.keySet().forEach(this::remove);
+    }
+
+    private void reindex(Company previous, Company company) {
+        if (previous == company) {
+            return;
+        }
+
+        if (previous != null) {
+            this.index.remove(previous.getCompanyCode(), previous);
+        }
+
+        if (company != null) {
+            this.index.put(company.getCompanyCode(), company);
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Company>> entrySet() {
+        return  this.entries;
+    }
+
+    private class EntrySet extends AbstractSet<Entry<String, Company>> {
+        @Override
+        public Iterator<Entry<String, Company>> iterator() {
+            Iterator<Company> iterator = CompanyRegistry.this.index.values().iterator();
+
+            return  new Iterator<>() {
+                private Company current;
+
+                @Override
+                public boolean hasNext() {
+                    return  iterator.hasNext();
+                }
+
+                @Override
+                public Entry<String, Company> next() {
+                    this.current = iterator.next();
+
+                    return  new SimpleImmutableEntry<>(this.current.getCode(), this.current);
+                }
+
+                @Override
+                public void remove() {
+                    if (this.current == null) {
+                        throw new IllegalStateException();
+                    }
+
+                    CompanyRegistry.this.remove(this.current.getCode(), this.current);
+                    this.current = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return  CompanyRegistry.this.size();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.xtra;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+class CompanySnapshot {
+    private static final int MAGIC = 0x51585331;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 65536;
+
+    private static final Account[] accounts = Account.values();
+
+    private CompanySnapshot() {
+    }
+
+    public static void save(Map<String, Company> companies, String path) throws IOException {
+        List<Company> sortedCompanies = companies.values()
+                .stream()
+                .sorted(Comparator.comparing(Company::getCode))
+                .collect(Collectors.toList());
+
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        sortedCompanies.forEach(company -> {
+            addString(dictionary, company.getMarket());
+            addString(dictionary, company.getCode());
+            addString(dictionary, company.getName());
+            addString(dictionary, company.getIndustryCode());
+            addString(dictionary, company.getCategories());
+            addString(dictionary, company.getComment());
+            addStrings(dictionary, company.getYearlyFinancial());
+            addStrings(dictionary, company.getQuarterlyFinancial());
+        });
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), BUFFER_SIZE))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+
+            output.writeInt(accounts.length);
+            for(Account account : accounts) {
+                writeString(output, account.name());
+            }
+
+            output.writeInt(dictionary.size());
+            for(String value : dictionary.keySet()) {
+                writeString(output, value);
+            }
+
+            output.writeInt(sortedCompanies.size());
+            for(Company company : sortedCompanies) {
+                output.writeInt(getIndex(dictionary, company.getMarket()));
+                output.writeInt(getIndex(dictionary, company.getCode()));
+                output.writeInt(getIndex(dictionary, company.getName()));
+                output.writeInt(getIndex(dictionary, company.getIndustryCode()));
+                output.writeInt(getIndex(dictionary, company.getCategories()));
+                output.writeInt(getIndex(dictionary, company.getComment()));
+                output.writeDouble(company.getPbr());
+                output.writeLong(company.getMarketCapitalization());
+
+                writeSeries(output, dictionary, company.getYearlyFinancial());
+                writeSeries(output, dictionary, company.getQuarterlyFinancial());
+            }
+        }
+    }
+
+    public static void load(String path, Map<String, Company> companies) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(path), BUFFER_SIZE))) {
+            if ((input.readInt() != MAGIC) || (input.readInt() != VERSION)) {
+                throw new IOException("Invalid snapshot : " + path);
+            }
+
+            Account[] fileAccounts = new Account[input.readInt()];
+            for(int i = 0 ; i < fileAccounts.length ; i++) {
+                String name = readString(input);
+                try {
+                    fileAccounts[i] = Account.valueOf(name);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Unknown account in snapshot : " + name);
+                }
+            }
+
+            String[] dictionary = new String[input.readInt()];
+            for(int i = 0 ; i < dictionary.length ; i++) {
+                dictionary[i] = readString(input);
+            }
+
+            int count = input.readInt();
+            for(int i = 0 ; i < count ; i++) {
+                String market = getString(dictionary, input.readInt());
+                String code = getString(dictionary, input.readInt());
+                String name = getString(dictionary, input.readInt());
+                String industryCode = getString(dictionary, input.readInt());
+                String categories = getString(dictionary, input.readInt());
+                String comment = getString(dictionary, input.readInt());
+
+                Company company = new Company(market, code, name, industryCode, categories, comment);
+                company.setPbr(input.readDouble());
+                company.setMarketCapitalization(input.readLong());
+
+                readSeries(input, dictionary, fileAccounts, company.getYearlyFinancial());
+                readSeries(input, dictionary, fileAccounts, company.getQuarterlyFinancial());
+
+                companies.merge(code, company, (current, loaded) -> {
+                    current.merge(loaded);
+                    return  current;
+                });
+            }
+        }
+    }
+
+    private static void addString(Map<String, Integer> dictionary, String value) {
+        if (value != null) {
+            dictionary.putIfAbsent(value, dictionary.size());
+        }
+    }
+
+    private static void addStrings(Map<String, Integer> dictionary, FinanceSeries series) {
+        series.forEach((session, finance) -> {
+            for(Account account : accounts) {
+                if ((account.getType() == Account.Type.STRING) && finance.hasAccount(account)) {
+                    addString(dictionary, finance.getString(account));
+                }
+            }
+        });
+    }
+
+    private static int getIndex(Map<String, Integer> dictionary, String value) {
+        return  (value != null) ? dictionary.get(value) : -1;
+    }
+
+    private static String getString(String[] dictionary, int index) throws IOException {
+        if (index == -1) {
+            return  null;
+        } else if ((index < 0) || (index >= dictionary.length)) {
+            throw new IOException("Invalid string index in snapshot : " + index);
+        }
+
+        return  dictionary[index];
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+
+        return  new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeSeries(DataOutputStream output, Map<String, Integer> dictionary, FinanceSeries series) throws IOException {
+        long[] sessions = series.getSessions();
+        Finance[] finances = new Finance[sessions.length];
+        for(int i = 0 ; i < sessions.length ; i++) {
+            finances[i] = series.get(sessions[i]);
+        }
+
+        output.writeInt(sessions.length);
+        for(long session : sessions) {
+            output.writeLong(session);
+        }
+
+        int[] indexes = new int[sessions.length];
+        for(Account account : accounts) {
+            int count = 0;
+            for(int i = 0 ; i < finances.length ; i++) {
+                if (finances[i].hasAccount(account)) {
+                    indexes[count++] = i;
+                }
+            }
+
+            output.writeInt(count);
+            for(int i = 0 ; i < count ; i++) {
+                output.writeInt(indexes[i]);
+            }
+
+            for(int i = 0 ; i < count ; i++) {
+                Finance finance = finances[indexes[i]];
+                switch (account.getType()) {
+                    case LONG:
+                        output.writeLong(finance.getLong(account));
+                        break;
+                    case DOUBLE:
+                        output.writeDouble(finance.getDouble(account));
+                        break;
+                    default:
+                        output.writeInt(getIndex(dictionary, finance.getString(account)));
+                }
+            }
+        }
+    }
+
+    private static void readSeries(DataInputStream input, String[] dictionary, Account[] fileAccounts, FinanceSeries series) throws IOException {
+        Finance[] finances = new Finance[input.readInt()];
+        for(int i = 0 ; i < finances.length ; i++) {
+            long session = input.readLong();
+            try {
+                finances[i] = series.getOrCreate(session);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid session in snapshot : " + session);
+            }
+        }
+
+        for(Account account : fileAccounts) {
+            int[] indexes = new int[input.readInt()];
+            for(int i = 0 ; i < indexes.length ; i++) {
+                indexes[i] = input.readInt();
+                if ((indexes[i] < 0) || (indexes[i] >= finances.length)) {
+                    throw new IOException("Invalid session index in snapshot : " + indexes[i]);
+                }
+            }
+
+            for(int index : indexes) {
+                switch (account.getType()) {
+                    case LONG:
+                        finances[index].setLong(account, input.readLong());
+                        break;
+                    case DOUBLE:
+                        finances[index].setDouble(account, input.readDouble());
+                        break;
+                    default:
+                        finances[index].setString(account, getString(dictionary, input.readInt()));
+                }
+            }
+        }
+    }
+}
@@ -1,23 +1,39 @@
 package org.xtra;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.ss.usermodel.*;
 
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import org.apache.logging.log4j.Logger;
+import org.xml.sax.SAXException;
 
 public abstract class ExcelFile {
 
     public class XWorkbook implements AutoCloseable {
+        public static final int STREAMING_WINDOW_SIZE = 100;
+
         Workbook workbook;
         Map<String, CellStyle>  cellStyles;
         Map<String, Font>  fonts;
@@ -28,6 +44,10 @@ public abstract class ExcelFile {
             this(new XSSFWorkbook());
         }
 
+        public XWorkbook(boolean streaming) {
+            this(streaming ? new SXSSFWorkbook(STREAMING_WINDOW_SIZE) : new XSSFWorkbook());
+        }
+
         public XWorkbook(Workbook workbook) {
             this.workbook = workbook;
             this.cellStyles = new HashMap<>();
@@ -38,9 +58,16 @@ public abstract class ExcelFile {
 
         @Override
         public void close() throws IOException {
+            if (this.workbook instanceof SXSSFWorkbook) {
+                ((SXSSFWorkbook) this.workbook).dispose();
+            }
             this.workbook.close();
         }
 
+        public boolean isStreaming() {
+            return  this.workbook instanceof SXSSFWorkbook;
+        }
+
         public XSheet createXSheet() {
             XSheet sheet = new XSheet(this, this.workbook.createSheet());
             this.sheets.add(sheet) ;
@@ -95,19 +122,30 @@ public abstract class ExcelFile {
         }
 
         public void write(OutputStream outputStream) throws IOException {
+            this.sheets.forEach(XSheet::applyMergedRegions);
             this.workbook.write(outputStream);
         }
     }
 
     public class XSheet {
+        public static final int MAX_COLUMN_WIDTH = 255;
+
         XWorkbook xWorkbook;
         Sheet sheet;
-        Map<Integer, XRow>  xRows;
+        int lastCellNum;
+        int[] columnWidths;
+        List<Row> unmeasuredRows;
+        DataFormatter dataFormatter;
+        List<CellRangeAddress> mergedRegions;
 
         public XSheet(XWorkbook workbook, Sheet sheet) {
             this.xWorkbook = workbook;
             this.sheet = sheet;
-            this.xRows = new TreeMap<>();
+            this.lastCellNum = -1;
+            this.columnWidths = new int[0];
+            this.unmeasuredRows = new ArrayList<>();
+            this.dataFormatter = new DataFormatter();
+            this.mergedRegions = new ArrayList<>();
         }
 
         public XWorkbook getXWorkbook() {
@@ -115,18 +153,42 @@ public abstract class ExcelFile {
         }
 
         public void addMergedRegion(CellRangeAddress cellRangeAddress) {
-            this.sheet.addMergedRegion(cellRangeAddress);
+            if (cellRangeAddress.getNumberOfCells() < 2) {
+                throw new IllegalArgumentException("Merged region " + cellRangeAddress.formatAsString() + " must contain 2 or more cells");
+            }
+
+            this.mergedRegions.add(cellRangeAddress);
+        }
+
+        public void applyMergedRegions() {
+            Map<Integer, BitSet> usedCells = new HashMap<>();
+            for(CellRangeAddress region : this.mergedRegions) {
+                for(int row = region.getFirstRow() ; row <= region.getLastRow() ; row++) {
+                    BitSet columns = usedCells.computeIfAbsent(row, key -> new BitSet());
+                    int next = columns.nextSetBit(region.getFirstColumn());
+                    if ((next >= 0) && (next <= region.getLastColumn())) {
+                        throw new IllegalStateException("Cell range " + region.formatAsString() + " intersects with an existing merged region");
+                    }
+
+                    columns.set(region.getFirstColumn(), region.getLastColumn() + 1);
+                }
+            }
+
+            this.mergedRegions.forEach(this.sheet::addMergedRegionUnsafe);
+            this.mergedRegions.clear();
         }
 
         public XRow createXRow(int i) {
-            XRow xRow = new XRow(this, this.sheet.createRow(i)) ;
-            this.xRows.put(i, xRow);
+            this.measureRows();
 
-            return  xRow;
+            return  new XRow(this, this.createRow(i));
         }
 
         public Row createRow(int i) {
-            return  this.sheet.createRow(i);
+            Row row = this.sheet.createRow(i);
+            this.unmeasuredRows.add(row);
+
+            return  row;
         }
 
         public Row getRow(int i) {
@@ -137,8 +199,39 @@ public abstract class ExcelFile {
             return  this.sheet.getLastRowNum();
         }
 
-        public void autoSizeColumn(int c, boolean b) {
-            this.sheet.autoSizeColumn(c, b);
+        public int getLastCellNum() {
+            return  this.lastCellNum;
+        }
+
+        public void setColumnWidths(int firstColumn, int lastColumn) {
+            this.measureRows();
+
+            for(int column = firstColumn ; column < Math.min(lastColumn, this.columnWidths.length) ; column++) {
+                if (this.columnWidths[column] > 0) {
+                    this.sheet.setColumnWidth(column, Math.min(MAX_COLUMN_WIDTH, this.columnWidths[column] + 1) * 256);
+                }
+            }
+        }
+
+        private void measureRows() {
+            this.unmeasuredRows.forEach(row -> row.forEach(cell -> {
+                int width = this.getDisplayWidth(this.dataFormatter.formatCellValue(cell));
+                if (cell.getColumnIndex() >= this.columnWidths.length) {
+                    this.columnWidths = Arrays.copyOf(this.columnWidths, Math.max(cell.getColumnIndex() + 1, this.columnWidths.length * 2));
+                }
+
+                this.columnWidths[cell.getColumnIndex()] = Math.max(this.columnWidths[cell.getColumnIndex()], width);
+            }));
+            this.unmeasuredRows.clear();
+        }
+
+        private int getDisplayWidth(String value) {
+            int width = 0;
+            for(int i = 0 ; i < value.length() ; i++) {
+                width += (value.charAt(i) >= '\u1100') ? 2 : 1;
+            }
+
+            return  width;
         }
     }
 
@@ -156,7 +249,10 @@ public abstract class ExcelFile {
         }
 
         public Cell createCell(int i , CellType cellType) {
-            return  this.row.createCell(i, cellType);
+            Cell cell = this.row.createCell(i, cellType);
+            this.xSheet.lastCellNum = Math.max(this.xSheet.lastCellNum, this.row.getLastCellNum());
+
+            return  cell;
         }
 
         public Cell createCell(int i , CellType cellType, CellStyle cellStyle) {
@@ -170,45 +266,363 @@ public abstract class ExcelFile {
             return  this.row.getLastCellNum();
         }
     }
+    protected static class SheetContext {
+        private final String sheetName;
+        private final Map<Integer, String> header;
+
+        public SheetContext(String sheetName, Map<Integer, String> header) {
+            this.sheetName = sheetName;
+            this.header = header;
+        }
+
+        public String getSheetName() {
+            return  this.sheetName;
+        }
+
+        public Map<Integer, String> getHeader() {
+            return  this.header;
+        }
+    }
+
+    private class StreamingSheetLoader implements StreamingReader.RowHandler {
+        private final Workbook headerWorkbook;
+        private String sheetName;
+        private List<StreamingRow> headerRows;
+        private final RowPipeline pipeline;
+        private SheetContext context;
+        private BitSet projection;
+        private RowPipeline.Feed feed;
+
+        StreamingSheetLoader(Workbook headerWorkbook, RowPipeline pipeline) {
+            this.headerWorkbook = headerWorkbook;
+            this.pipeline = pipeline;
+        }
+
+        public SheetContext getContext() {
+            return  this.context;
+        }
+
+        public void finish() throws IOException {
+            if (this.feed != null) {
+                this.feed.finish();
+            }
+        }
+
+        @Override
+        public void startSheet(String sheetName) {
+            this.sheetName = sheetName;
+            this.headerRows = new ArrayList<>();
+            ExcelFile.this.logger.log(Level.DEBUG, "Load page : {}", sheetName);
+        }
+
+        @Override
+        public void row(StreamingRow row) {
+            if (this.headerRows != null) {
+                if (!ExcelFile.this.isData(row)) {
+                    this.headerRows.add(row);
+                    return;
+                }
+
+                this.loadHeader();
+            }
+
+            if (ExcelFile.this.isData(row)) {
+                if (this.feed != null) {
+                    try {
+                        this.feed.add(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                } else {
+                    ExcelFile.this.load(this.context, row);
+                }
+            }
+        }
+
+        @Override
+        public void endSheet() {
+            if (this.headerRows != null) {
+                this.loadHeader();
+            }
+        }
+
+        @Override
+        public boolean isColumnWanted(int column) {
+            return  (this.projection == null) || this.projection.get(column);
+        }
+
+        private void loadHeader() {
+            Sheet sheet = this.headerWorkbook.createSheet(this.sheetName);
+            this.headerRows.forEach(headerRow -> {
+                Row row = sheet.createRow(headerRow.getRowNum());
+                headerRow.forEach(headerCell -> {
+                    Cell cell = row.createCell(headerCell.getColumnIndex());
+                    switch (headerCell.getCellType()) {
+                        case NUMERIC:
+                            cell.setCellValue(headerCell.getNumericCellValue());
+                            break;
+                        case STRING:
+                            cell.setCellValue(headerCell.getStringCellValue());
+                            break;
+                        case BOOLEAN:
+                            cell.setCellValue(headerCell.getBooleanCellValue());
+                            break;
+                        case ERROR:
+                            cell.setCellErrorValue(headerCell.getErrorCellValue());
+                            break;
+                        default:
+                    }
+                });
+            });
+            this.headerRows = null;
+
+            SheetContext sheetContext = ExcelFile.this.createContext(sheet);
+            this.context = sheetContext;
+            this.projection = ExcelFile.this.getColumnProjection(sheetContext);
+            if (this.pipeline != null) {
+                this.feed = this.pipeline.createFeed(row -> ExcelFile.this.parse(sheetContext, row));
+            }
+        }
+    }
+
     protected final Logger logger;
-    Map<Integer, String> header;
-    Sheet      currentSheet;
+    boolean    streaming;
+    int        threads;
+    CompanyFilter filter;
+    FilePrefetcher prefetcher;
 
     ExcelFile() {
-        this.header = new HashMap<>();
         this.logger = LogManager.getLogger();
+        this.streaming = false;
+        this.threads = 1;
+    }
+
+    public boolean isStreaming() {
+        return  this.streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public int getThreads() {
+        return  this.threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public CompanyFilter getFilter() {
+        return  this.filter;
     }
+
+    public void setFilter(CompanyFilter filter) {
+        this.filter = ((filter != null) && !filter.isEmpty()) ? filter : null;
+    }
+
+    public FilePrefetcher getPrefetcher() {
+        return  this.prefetcher;
+    }
+
+    public void setPrefetcher(FilePrefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+    }
+
+    private OPCPackage openPackage(File file, int threads) throws IOException, InvalidFormatException {
+        if (this.prefetcher != null) {
+            return  this.prefetcher.open(file, threads);
+        }
+
+        return  MappedZipSource.open(file, threads);
+    }
+
+    protected static Company getOrCreateCompany(Map<String, Company> companies, String code, Function<String, Company> factory) {
+        if (companies instanceof ConcurrentMap) {
+            return  companies.computeIfAbsent(code, factory);
+        }
+
+        synchronized (companies) {
+            return  companies.computeIfAbsent(code, factory);
+        }
+    }
+
+    protected boolean accept(String market, String code, String name, String industryCode) {
+        return  (this.filter == null) || this.filter.accept(market, code, name, industryCode);
+    }
+
     public void load(String path) {
-        try(FileInputStream inStream = new FileInputStream(path)) {
-            Workbook workbook = new XSSFWorkbook(inStream) ;
+        if (this.streaming) {
+            this.loadStreaming(path);
+            return;
+        }
 
-            for(int page = 0 ; page < workbook.getNumberOfSheets() ; page++) {
-                this.currentSheet = workbook.getSheetAt(page);
-                this.logger.log(Level.DEBUG, "Load page : {}", this.currentSheet.getSheetName());
+        if (!new File(path).isFile()) {
+            this.logger.log(Level.ERROR, "File not found : {}", path);
+            return;
+        }
+
+        OPCPackage opcPackage = null;
+        try (RowPipeline pipeline = this.createPipeline()) {
+            opcPackage = this.openPackage(new File(path), this.threads);
+            Workbook workbook = new XSSFWorkbook(opcPackage) ;
 
-                this.load(this.currentSheet);
+            List<Callable<SheetContext>> tasks = new ArrayList<>();
+            for(int page = 0 ; page < workbook.getNumberOfSheets() ; page++) {
+                Sheet sheet = workbook.getSheetAt(page);
+                tasks.add(() -> {
+                    this.logger.log(Level.DEBUG, "Load page : {}", sheet.getSheetName());
+                    return  this.load(sheet, pipeline);
+                });
             }
+
+            this.loadSheets(tasks);
         } catch (FileNotFoundException e) {
             this.logger.log(Level.ERROR, "File not found : {}", path);
-        } catch (IOException e) {
+        } catch (IOException | InvalidFormatException e) {
             this.logger.log(Level.ERROR, e);
+        } finally {
+            if (opcPackage != null) {
+                opcPackage.revert();
+            }
         }
     }
 
-    protected void load(Sheet sheet) {
-        this.logger.log(Level.DEBUG, "Sheet : {}", sheet.getSheetName());
+    protected void loadStreaming(String path) {
+        if (!new File(path).isFile()) {
+            this.logger.log(Level.ERROR, "File not found : {}", path);
+            return;
+        }
+
+        try (StreamingReader reader = new StreamingReader(this.openPackage(new File(path), 1));
+             RowPipeline pipeline = this.createPipeline()) {
+            List<Callable<SheetContext>> tasks = new ArrayList<>();
+            for(int page = 0 ; page < reader.getNumberOfSheets() ; page++) {
+                int index = page;
+                tasks.add(() -> {
+                    try (Workbook headerWorkbook = new XSSFWorkbook()) {
+                        StreamingSheetLoader loader = new StreamingSheetLoader(headerWorkbook, pipeline);
+                        try {
+                            reader.read(index, loader);
+                        } catch (UncheckedIOException e) {
+                            throw e.getCause();
+                        }
+                        loader.finish();
+
+                        return  loader.getContext();
+                    }
+                });
+            }
+
+            this.loadSheets(tasks);
+        } catch (IOException | OpenXML4JException | SAXException e) {
+            this.logger.log(Level.ERROR, e);
+        }
+    }
+
+    private void loadSheets(List<Callable<SheetContext>> tasks) throws IOException {
+        if ((this.threads <= 1) || (tasks.size() <= 1) || !this.isSheetParallel()) {
+            for(Callable<SheetContext> task : tasks) {
+                this.complete(this.call(task));
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.threads, tasks.size()));
+        try {
+            List<Future<SheetContext>> results = new ArrayList<>();
+            for(Callable<SheetContext> task : tasks) {
+                results.add(executor.submit(task));
+            }
+
+            for(Future<SheetContext> result : results) {
+                this.complete(result.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private SheetContext call(Callable<SheetContext> task) throws IOException {
+        try {
+            return  task.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private RowPipeline createPipeline() {
+        return  (this.threads > 1) ? new RowPipeline(this.threads) : null;
+    }
+
+    protected SheetContext load(Sheet sheet) throws IOException {
+        return  this.load(sheet, null);
+    }
+
+    protected SheetContext load(Sheet sheet, RowPipeline pipeline) throws IOException {
+        SheetContext context = this.createContext(sheet);
+        if (pipeline == null) {
+            for (Row row : sheet) {
+                if (this.isData(row)) {
+                    this.load(context, row);
+                }
+            }
 
-        this.header = this.getHeader(sheet);
+            return  context;
+        }
 
-        System.out.println(this.header);
+        RowPipeline.Feed feed = pipeline.createFeed(row -> this.parse(context, row));
         for (Row row : sheet) {
             if (this.isData(row)) {
-                this.load(row);
+                feed.add(row);
             }
         }
+        feed.finish();
+
+        return  context;
+    }
+
+    protected SheetContext createContext(Sheet sheet) {
+        this.logger.log(Level.DEBUG, "Sheet : {}", sheet.getSheetName());
+
+        Map<Integer, String> header = this.getHeader(sheet);
+
+        System.out.println(header);
+        return  new SheetContext(sheet.getSheetName(), header);
+    }
+
+    protected void complete(SheetContext context) {
+    }
+
+    protected boolean isSheetParallel() {
+        return  true;
+    }
+
+    protected BitSet getColumnProjection(SheetContext context) {
+        return  null;
+    }
+
+    protected void load(SheetContext context, Row row) {
+        Runnable update = this.parse(context, row);
+        if (update != null) {
+            update.run();
+        }
     }
 
-    protected abstract void load(Row row);
+    protected abstract Runnable parse(SheetContext context, Row row);
     protected abstract boolean isHeader(Row row);
     protected abstract boolean isData(Row row);
     protected abstract Map<Integer, String> getHeader(Sheet sheet);
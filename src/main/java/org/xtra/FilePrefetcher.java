@@ -0,0 +1,216 @@
+package org.xtra;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+
+class FilePrefetcher implements AutoCloseable {
+    enum State {
+        PENDING,
+        STAGING,
+        READY,
+        CLAIMED
+    }
+
+    private static class StagedFile {
+        private final File file;
+        private State state;
+        private MappedZipSource source;
+        private long size;
+
+        StagedFile(File file) {
+            this.file = file;
+            this.state = State.PENDING;
+        }
+    }
+
+    private final Logger logger;
+    private final long budget;
+    private final int threads;
+    private final Map<String, StagedFile> files;
+    private final ExecutorService executor;
+    private long staged;
+    private boolean closed;
+
+    FilePrefetcher(List<String> filenames, long budget, int threads) {
+        this.logger = LogManager.getLogger();
+        this.budget = budget;
+        this.threads = Math.max(1, threads);
+        this.files = new LinkedHashMap<>();
+        this.staged = 0;
+        this.closed = false;
+
+        filenames.forEach(filename -> {
+            File file = new File(filename);
+            this.files.putIfAbsent(getKey(file), new StagedFile(file));
+        });
+
+        this.executor = Executors.newSingleThreadExecutor();
+        this.executor.submit(this::prefetch);
+    }
+
+    public OPCPackage open(File file, int threads) throws IOException, InvalidFormatException {
+        MappedZipSource source = this.take(file);
+        if (source == null) {
+            return  MappedZipSource.open(file, threads);
+        }
+
+        try {
+            return  OPCPackage.open(source);
+        } catch (InvalidFormatException | RuntimeException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    public synchronized void discard(String filename) {
+        StagedFile stagedFile = this.files.get(getKey(new File(filename)));
+        if ((stagedFile == null) || (stagedFile.state == State.CLAIMED)) {
+            return;
+        }
+
+        MappedZipSource source = stagedFile.source;
+        stagedFile.source = null;
+        stagedFile.state = State.CLAIMED;
+        if (source != null) {
+            source.close();
+        }
+        this.notifyAll();
+    }
+
+    private synchronized MappedZipSource take(File file) throws IOException {
+        StagedFile stagedFile = this.files.get(getKey(file));
+        if (stagedFile == null) {
+            return  null;
+        }
+
+        try {
+            while (stagedFile.state == State.STAGING) {
+                this.wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        MappedZipSource source = stagedFile.source;
+        stagedFile.source = null;
+        stagedFile.state = State.CLAIMED;
+        this.notifyAll();
+
+        return  source;
+    }
+
+    private void prefetch() {
+        for(StagedFile stagedFile : this.files.values()) {
+            MappedZipSource source = null;
+            try {
+                synchronized (this) {
+                    if (this.closed) {
+                        return;
+                    }
+
+                    if (stagedFile.state != State.PENDING) {
+                        continue;
+                    }
+                }
+
+                if (!stagedFile.file.isFile() || (stagedFile.file.length() > Integer.MAX_VALUE)) {
+                    continue;
+                }
+
+                source = new MappedZipSource(stagedFile.file);
+                long size = source.getInflatedSize(source.getSheetEntries());
+
+                synchronized (this) {
+                    while (!this.closed && (stagedFile.state == State.PENDING)
+                            && (this.staged > 0) && (this.staged + size > this.budget)) {
+                        this.wait();
+                    }
+
+                    if (this.closed || (stagedFile.state != State.PENDING)) {
+                        source.close();
+                        continue;
+                    }
+
+                    stagedFile.state = State.STAGING;
+                    stagedFile.size = size;
+                    this.staged += size;
+                    source.setReleaseListener(released -> this.release(stagedFile, released));
+                    source.setCloseListener(() -> this.release(stagedFile, Long.MAX_VALUE));
+                }
+
+                this.logger.log(Level.DEBUG, "Prefetch : {}", stagedFile.file);
+                source.inflate(source.getSheetEntries(), this.threads);
+
+                synchronized (this) {
+                    if (this.closed || (stagedFile.state != State.STAGING)) {
+                        source.close();
+                        continue;
+                    }
+
+                    stagedFile.source = source;
+                    stagedFile.state = State.READY;
+                    this.notifyAll();
+                }
+            } catch (IOException | RuntimeException e) {
+                this.logger.log(Level.WARN, "Can't prefetch {} : {}", stagedFile.file, e);
+                synchronized (this) {
+                    if (source != null) {
+                        source.close();
+                    }
+
+                    if (stagedFile.state == State.STAGING) {
+                        stagedFile.state = State.PENDING;
+                    }
+                    this.notifyAll();
+                }
+            } catch (InterruptedException e) {
+                if (source != null) {
+                    source.close();
+                }
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private synchronized void release(StagedFile stagedFile, long released) {
+        long size = Math.min(released, stagedFile.size);
+        this.staged -= size;
+        stagedFile.size -= size;
+        this.notifyAll();
+    }
+
+    private static String getKey(File file) {
+        return  file.getAbsoluteFile().toPath().normalize().toString();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+            this.files.values().forEach(stagedFile -> {
+                if (stagedFile.source != null) {
+                    stagedFile.source.close();
+                    stagedFile.source = null;
+                }
+                stagedFile.state = State.CLAIMED;
+            });
+            this.notifyAll();
+        }
+
+        this.executor.shutdownNow();
+    }
+}
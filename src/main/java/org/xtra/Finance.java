@@ -1,49 +1,168 @@
 package org.xtra;
 
 import org.json.JSONObject;
-import java.util.HashMap;
-import java.util.Map;
+
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
 
 class Finance {
 
-    private final Map<String, Object> values;
+    private static final Account[] accounts = Account.values();
+
+    private long presence;
+    private final long[] longValues;
+    private final double[] doubleValues;
+    private String[] stringValues;
 
     public Finance() {
-        this.values = new HashMap<>();
+        this.presence = 0L;
+        this.longValues = new long[Account.getSlotCount(Account.Type.LONG)];
+        this.doubleValues = new double[Account.getSlotCount(Account.Type.DOUBLE)];
+        this.stringValues = null;
+    }
+
+    public Object getAccount(Account account) throws NullPointerException {
+        if (!this.hasAccount(account)) {
+            throw new NullPointerException();
+        }
+
+        switch (account.getType()) {
+            case LONG:
+                return  this.longValues[account.getSlot()];
+            case DOUBLE:
+                return  this.doubleValues[account.getSlot()];
+            default:
+                return  this.stringValues[account.getSlot()];
+        }
+    }
+
+    public long getLong(Account account) throws NullPointerException {
+        this.checkType(account, Account.Type.LONG);
+        if (!this.hasAccount(account)) {
+            throw new NullPointerException();
+        }
+
+        return  this.longValues[account.getSlot()];
+    }
+
+    public long getLong(Account account, long defaultValue) {
+        this.checkType(account, Account.Type.LONG);
+        if (!this.hasAccount(account)) {
+            return  defaultValue;
+        }
+
+        return  this.longValues[account.getSlot()];
+    }
+
+    public OptionalLong findLong(Account account) {
+        this.checkType(account, Account.Type.LONG);
+        if (!this.hasAccount(account)) {
+            return  OptionalLong.empty();
+        }
+
+        return  OptionalLong.of(this.longValues[account.getSlot()]);
+    }
+
+    public double getDouble(Account account) throws NullPointerException {
+        this.checkType(account, Account.Type.DOUBLE);
+        if (!this.hasAccount(account)) {
+            throw new NullPointerException();
+        }
+
+        return  this.doubleValues[account.getSlot()];
+    }
 
+    public double getDouble(Account account, double defaultValue) {
+        this.checkType(account, Account.Type.DOUBLE);
+        if (!this.hasAccount(account)) {
+            return  defaultValue;
+        }
+
+        return  this.doubleValues[account.getSlot()];
     }
 
-    public Object getAccount(String title) throws NullPointerException {
-        if (this.values.containsKey(title)) {
-            return this.values.get(title);
+    public OptionalDouble findDouble(Account account) {
+        this.checkType(account, Account.Type.DOUBLE);
+        if (!this.hasAccount(account)) {
+            return  OptionalDouble.empty();
         }
 
-        throw new NullPointerException();
+        return  OptionalDouble.of(this.doubleValues[account.getSlot()]);
     }
 
-    public Object getAccount(String title, Object defaultValue) throws NullPointerException {
-        if (this.values.containsKey(title)) {
-            return this.values.get(title);
+    public String getString(Account account) throws NullPointerException {
+        this.checkType(account, Account.Type.STRING);
+        if (!this.hasAccount(account)) {
+            throw new NullPointerException();
         }
 
-        return  defaultValue;
+        return  this.stringValues[account.getSlot()];
     }
 
-    public void setAccount(String title, Object value) {
-        this.values.put(title, value);
+    public void setLong(Account account, long value) {
+        this.checkType(account, Account.Type.LONG);
+        this.longValues[account.getSlot()] = value;
+        this.presence |= account.getMask();
     }
 
-    public boolean hasAccount(String title) {
-        return  this.values.containsKey(title);
+    public void setDouble(Account account, double value) {
+        this.checkType(account, Account.Type.DOUBLE);
+        this.doubleValues[account.getSlot()] = value;
+        this.presence |= account.getMask();
+    }
+
+    public void setString(Account account, String value) {
+        this.checkType(account, Account.Type.STRING);
+        if (this.stringValues == null) {
+            this.stringValues = new String[Account.getSlotCount(Account.Type.STRING)];
+        }
+
+        this.stringValues[account.getSlot()] = value;
+        this.presence |= account.getMask();
+    }
+
+    public void setAccount(Account account, Object value) {
+        switch (account.getType()) {
+            case LONG:
+                this.setLong(account, ((Number) value).longValue());
+                break;
+            case DOUBLE:
+                this.setDouble(account, ((Number) value).doubleValue());
+                break;
+            default:
+                this.setString(account, (String) value);
+        }
+    }
+
+    public void merge(Finance finance) {
+        for(Account account : accounts) {
+            if (finance.hasAccount(account)) {
+                this.setAccount(account, finance.getAccount(account));
+            }
+        }
+    }
+
+    public boolean hasAccount(Account account) {
+        return  (this.presence & account.getMask()) != 0;
+    }
+
+    private void checkType(Account account, Account.Type type) {
+        if (account.getType() != type) {
+            throw new IllegalArgumentException(account + " is not a " + type + " account");
+        }
     }
 
     public JSONObject toJson() {
         JSONObject root = new JSONObject();
-        this.values.forEach(root::put);
+        for(Account account : accounts) {
+            if (this.hasAccount(account)) {
+                root.put(account.name(), this.getAccount(account));
+            }
+        }
         return  root;
     }
 
     public String toString() {
         return  this.toJson().toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,193 @@
+package org.xtra;
+
+import java.util.Arrays;
+
+class FinanceSeries {
+
+    interface SessionConsumer {
+        void accept(long session, Finance finance);
+    }
+
+    private final boolean quarterly;
+    private Finance[] finances;
+    private int base;
+    private int first;
+    private int last;
+    private int size;
+
+    private FinanceSeries(boolean quarterly) {
+        this.quarterly = quarterly;
+        this.finances = new Finance[0];
+        this.base = 0;
+        this.first = -1;
+        this.last = -1;
+        this.size = 0;
+    }
+
+    public static FinanceSeries yearly() {
+        return  new FinanceSeries(false);
+    }
+
+    public static FinanceSeries quarterly() {
+        return  new FinanceSeries(true);
+    }
+
+    public static boolean isValidSession(long session) {
+        return  (session > 9999) ? isValidQuarter(session) : isValidYear(session);
+    }
+
+    private static boolean isValidQuarter(long session) {
+        long month = session % 100;
+        return  (session > 0) && (1 <= month) && (month <= 12);
+    }
+
+    private static boolean isValidYear(long session) {
+        return  (0 <= session) && (session <= 9999);
+    }
+
+    public boolean isValid(long session) {
+        return  this.quarterly ? isValidQuarter(session) : isValidYear(session);
+    }
+
+    private int toOrdinal(long session) {
+        if (this.quarterly) {
+            return  (int) (session / 100 * 12 + session % 100 - 1);
+        }
+
+        return  (int) session;
+    }
+
+    private long toSession(int ordinal) {
+        if (this.quarterly) {
+            return  (long) (ordinal / 12) * 100 + ordinal % 12 + 1;
+        }
+
+        return  ordinal;
+    }
+
+    public int size() {
+        return  this.size;
+    }
+
+    public boolean isEmpty() {
+        return  this.size == 0;
+    }
+
+    public boolean contains(long session) {
+        return  this.get(session) != null;
+    }
+
+    public Finance get(long session) {
+        if (!this.isValid(session) || this.isEmpty()) {
+            return  null;
+        }
+
+        int index = this.toOrdinal(session) - this.base;
+        if ((index < this.first) || (index > this.last)) {
+            return  null;
+        }
+
+        return  this.finances[index];
+    }
+
+    public Finance getOrCreate(long session) {
+        if (!this.isValid(session)) {
+            throw new IllegalArgumentException("Invalid session : " + session);
+        }
+
+        int ordinal = this.toOrdinal(session);
+        if (this.isEmpty()) {
+            if (this.finances.length == 0) {
+                this.finances = new Finance[this.quarterly ? 48 : 16];
+            }
+            this.base = ordinal - ((this.finances.length - 1) / 2);
+        } else if (ordinal < this.base) {
+            int shift = Math.max(this.base - ordinal, this.finances.length);
+            Finance[] finances = new Finance[this.finances.length + shift];
+            System.arraycopy(this.finances, 0, finances, shift, this.finances.length);
+            this.finances = finances;
+            this.base -= shift;
+            this.first += shift;
+            this.last += shift;
+        } else if (ordinal - this.base >= this.finances.length) {
+            this.finances = Arrays.copyOf(this.finances, Math.max(ordinal - this.base + 1, this.finances.length * 2));
+        }
+
+        int index = ordinal - this.base;
+        Finance finance = this.finances[index];
+        if (finance == null) {
+            finance = new Finance();
+            this.finances[index] = finance;
+            this.size++;
+            this.first = (this.first < 0) ? index : Math.min(this.first, index);
+            this.last = Math.max(this.last, index);
+        }
+
+        return  finance;
+    }
+
+    public long getFirstSession() {
+        if (this.isEmpty()) {
+            throw new NullPointerException();
+        }
+
+        return  this.toSession(this.base + this.first);
+    }
+
+    public long getLastSession() {
+        if (this.isEmpty()) {
+            throw new NullPointerException();
+        }
+
+        return  this.toSession(this.base + this.last);
+    }
+
+    public long[] getSessions() {
+        long[] sessions = new long[this.size];
+        int count = 0;
+        for(int index = this.first ; (index >= 0) && (index <= this.last) ; index++) {
+            if (this.finances[index] != null) {
+                sessions[count++] = this.toSession(this.base + index);
+            }
+        }
+
+        return  sessions;
+    }
+
+    public void forEach(SessionConsumer consumer) {
+        for(int index = this.first ; (index >= 0) && (index <= this.last) ; index++) {
+            if (this.finances[index] != null) {
+                consumer.accept(this.toSession(this.base + index), this.finances[index]);
+            }
+        }
+    }
+
+    public void forEach(long fromSession, long toSession, SessionConsumer consumer) {
+        if (this.isEmpty()) {
+            return;
+        }
+
+        int from = Math.max(this.first, this.toBoundOrdinal(fromSession, true) - this.base);
+        int to = Math.min(this.last, this.toBoundOrdinal(toSession, false) - this.base);
+        for(int index = from ; index <= to ; index++) {
+            if (this.finances[index] != null) {
+                consumer.accept(this.toSession(this.base + index), this.finances[index]);
+            }
+        }
+    }
+
+    private int toBoundOrdinal(long session, boolean lower) {
+        if (!this.quarterly) {
+            return  (int) Math.max(Integer.MIN_VALUE / 2, Math.min(Integer.MAX_VALUE / 2, session));
+        }
+
+        long month = session % 100;
+        if (month < 1) {
+            return  lower ? this.toOrdinal(session - month + 1) : this.toOrdinal(session - month - 100 + 12);
+        } else if (month > 12) {
+            return  lower ? this.toOrdinal(session - month + 100 + 1) : this.toOrdinal(session - month + 12);
+        }
+
+        return  this.toOrdinal(session);
+    }
+}
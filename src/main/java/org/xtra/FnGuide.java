@@ -4,7 +4,6 @@ import org.apache.logging.log4j.Level;
 import org.apache.poi.ss.usermodel.*;
 import org.json.JSONObject;
 
-import javax.management.InvalidAttributeValueException;
 import java.util.*;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -121,6 +120,86 @@ public class FnGuide extends ExcelFile {
     public static final String MARKET_KOSPI = "KS";
     public static final String MARKET_KOSDAQ = "KQ";
 
+    private static final Pattern ACCUMULATED_QUARTER = Pattern.compile("\\d+/누적", Pattern.CANON_EQ);
+    private static final Pattern YEAR = Pattern.compile("\\d\\d\\d\\d");
+    private static final Pattern QUARTER = Pattern.compile("\\d\\d\\d\\d\\d\\d");
+
+    static class ColumnPlan {
+        private final int[] columns;
+        private final Account[] accounts;
+        private final Long[] sessions;
+
+        private ColumnPlan(int[] columns, Account[] accounts, Long[] sessions) {
+            this.columns = columns;
+            this.accounts = accounts;
+            this.sessions = sessions;
+        }
+
+        public static ColumnPlan compile(String sheetName, Map<Integer, String> header) {
+            int startOfData = sheetName.equals("금융(연결)") ? FnGuide.START_OF_DATA_INDEX - 1 : FnGuide.START_OF_DATA_INDEX;
+            List<Integer> columns = new ArrayList<>();
+            List<Account> accounts = new ArrayList<>();
+            List<Long> sessions = new ArrayList<>();
+
+            new TreeMap<>(header).forEach((column, title) -> {
+                String[] fields = title.split("-");
+                if ((column < startOfData) || (fields.length < 2)) {
+                    return;
+                }
+
+                String session = fields[1];
+                if (ACCUMULATED_QUARTER.matcher(session).matches()) {
+                    session = session.substring(0, 6);
+                }
+
+                if ((YEAR.matcher(session).matches() || QUARTER.matcher(session).matches())
+                        && FinanceSeries.isValidSession(Long.parseLong(session))) {
+                    columns.add(column);
+                    accounts.add(Account.valueOf(fields[0]));
+                    sessions.add(Long.parseLong(session));
+                }
+            });
+
+            return  new ColumnPlan(columns.stream().mapToInt(Integer::intValue).toArray(),
+                    accounts.toArray(new Account[0]), sessions.toArray(new Long[0]));
+        }
+
+        public int size() {
+            return  this.columns.length;
+        }
+
+        public int getColumn(int index) {
+            return  this.columns[index];
+        }
+
+        public Account getAccount(int index) {
+            return  this.accounts[index];
+        }
+
+        public Long getSession(int index) {
+            return  this.sessions[index];
+        }
+    }
+
+    static class CompanySheetContext extends SheetContext {
+        private final Map<String, Company> companies;
+        private final ColumnPlan columnPlan;
+
+        public CompanySheetContext(String sheetName, Map<Integer, String> header, Map<String, Company> companies) {
+            super(sheetName, header);
+            this.companies = companies;
+            this.columnPlan = ColumnPlan.compile(sheetName, header);
+        }
+
+        public Map<String, Company> getCompanies() {
+            return  this.companies;
+        }
+
+        public ColumnPlan getColumnPlan() {
+            return  this.columnPlan;
+        }
+    }
+
     private final Map<String, Company> companies;
 
     public FnGuide(Map<String, Company> companies) {
@@ -128,6 +207,40 @@ public class FnGuide extends ExcelFile {
         this.companies = companies;
     }
 
+    @Override
+    protected SheetContext createContext(Sheet sheet) {
+        SheetContext context = super.createContext(sheet);
+        if (this.getThreads() <= 1) {
+            return  new CompanySheetContext(context.getSheetName(), context.getHeader(), this.companies);
+        }
+
+        return  new CompanySheetContext(context.getSheetName(), context.getHeader(), new HashMap<>());
+    }
+
+    @Override
+    protected void complete(SheetContext context) {
+        Map<String, Company> sheetCompanies = ((CompanySheetContext) context).getCompanies();
+        if (sheetCompanies != this.companies) {
+            sheetCompanies.forEach((code, company) -> this.companies.merge(code, company, (current, loaded) -> {
+                current.merge(loaded);
+                return  current;
+            }));
+        }
+    }
+
+    @Override
+    protected BitSet getColumnProjection(SheetContext context) {
+        BitSet projection = new BitSet();
+        projection.set(0, FnGuide.START_OF_DATA_INDEX);
+
+        ColumnPlan columnPlan = ((CompanySheetContext) context).getColumnPlan();
+        for(int i = 0 ; i < columnPlan.size() ; i++) {
+            projection.set(columnPlan.getColumn(i));
+        }
+
+        return  projection;
+    }
+
     @Override
     protected boolean isData(Row row) {
         return  ((row.getFirstCellNum() == 0) && (row.getCell(0).getCellType() == CellType.STRING)
@@ -154,47 +267,53 @@ public class FnGuide extends ExcelFile {
     }
 
     @Override
-    protected void load(Row row) {
+    protected Runnable parse(SheetContext context, Row row) {
+        CompanySheetContext companyContext = (CompanySheetContext) context;
         String itemCode = row.getCell(FnGuide.ITEM_CODE_INDEX).toString();
+        String market = this.getCellToString(row, FnGuide.MARKET_INDEX);
+        String name = this.getCellToString(row, FnGuide.NAME_INDEX);
+        String industryCode = this.getCellToString(row, FnGuide.INDUSTRY_INDEX);
 
-        Company company = this.companies.computeIfAbsent(itemCode, code-> {
-            String market = this.getCellToString(row, FnGuide.MARKET_INDEX);
-            String name = this.getCellToString(row, FnGuide.NAME_INDEX);
-            String industryCode = this.getCellToString(row, FnGuide.INDUSTRY_INDEX);
-            String categories = this.getCellToString(row, FnGuide.CATEGORY_INDEX);
+        if ((this.getFilter() != null) && !this.accept(market, itemCode, name, industryCode)) {
+            return  null;
+        }
 
-            //this.logger.log(Level.DEBUG, "{} : {}, {}, {}, {}", row.getRowNum(), itemCode, name, industryCode, categories);
-            return  new Company( market, itemCode, name, industryCode, categories);
-        });
+        String categories = this.getCellToString(row, FnGuide.CATEGORY_INDEX);
 
-        row.forEach(cell -> {
-            if (this.currentSheet.getSheetName().equals("금융(연결)") && company.getCode().equals("A000370")) {
-                this.logger.log(Level.DEBUG, "{}", company);
+        ColumnPlan columnPlan = companyContext.getColumnPlan();
+        long[] values = new long[columnPlan.size()];
+        BitSet parsed = new BitSet(columnPlan.size());
+        for(int i = 0 ; i < columnPlan.size() ; i++) {
+            Cell cell = row.getCell(columnPlan.getColumn(i));
+            if (cell == null) {
+                continue;
             }
-            if (((this.currentSheet.getSheetName().equals("금융(연결)") && (FnGuide.START_OF_DATA_INDEX - 1<= cell.getColumnIndex()))
-                || (!this.currentSheet.getSheetName().equals("금융(연결)") && FnGuide.START_OF_DATA_INDEX <= cell.getColumnIndex()))
-                && this.header.containsKey(cell.getColumnIndex())) {
-                if (company.getCode().equals("A000370")) {
-                    this.logger.log(Level.DEBUG, "{}", company);
-                }
-                String[] fields = this.header.get(cell.getColumnIndex()).split("-");
-                if (Pattern.compile("\\d+/누적", Pattern.CANON_EQ).matcher(fields[1]).matches()) {
-                    fields[1] = fields[1].substring(0,6);
+
+            try {
+                if (cell.getCellType() == CellType.NUMERIC) {
+                    values[i] = (long)cell.getNumericCellValue();
+                } else {
+                    values[i] = (long)Double.parseDouble(cell.getStringCellValue());
                 }
-                try {
-                    long value = 0;
-                    if (cell.getCellType() == CellType.NUMERIC) {
-                        value = (long)cell.getNumericCellValue();
-                    } else {
-                        value = (long)Double.parseDouble(cell.getStringCellValue());
+                parsed.set(i);
+            } catch (NumberFormatException ignore) {
+            }
+        }
 
-                    }
+        return  () -> {
+            Company company = getOrCreateCompany(companyContext.getCompanies(), itemCode,
+                    code-> new Company( market, code, name, industryCode, categories));
 
-                    company.setAccount(fields[0], fields[1], value);
-                } catch (InvalidAttributeValueException | NumberFormatException ignore) {
-                }
+            synchronized (company) {
+                this.merge(columnPlan, values, parsed, company);
             }
-        });
+        };
+    }
+
+    private void merge(ColumnPlan columnPlan, long[] values, BitSet parsed, Company company) {
+        for(int i = parsed.nextSetBit(0) ; i >= 0 ; i = parsed.nextSetBit(i + 1)) {
+            company.putAccount(columnPlan.getAccount(i), columnPlan.getSession(i), values[i]);
+        }
     }
 
     @Override
@@ -1,12 +1,20 @@
 package org.xtra;
 
+import java.io.BufferedWriter;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.logging.log4j.Level;
 import org.apache.poi.hssf.util.HSSFColor;
@@ -16,7 +24,6 @@ import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xssf.usermodel.XSSFColor;
 import org.json.JSONObject;
 
-import javax.management.InvalidAttributeValueException;
 
 public class FullCatalog extends ExcelFile {
     static class HeaderField {
@@ -37,6 +44,167 @@ public class FullCatalog extends ExcelFile {
         }
     }
 
+    static class ColumnDescriptor {
+        enum Kind {
+            LONG(Account.Type.LONG),
+            PERCENT(Account.Type.DOUBLE),
+            STRING(Account.Type.STRING),
+            PBR(Account.Type.DOUBLE),
+            MARKET_CAPITALIZATION(Account.Type.LONG);
+
+            private final Account.Type type;
+
+            Kind(Account.Type type) {
+                this.type = type;
+            }
+
+            public Account.Type getType() {
+                return  this.type;
+            }
+        }
+
+        private final int index;
+        private final String title;
+        private final Account account;
+        private final Kind kind;
+        private final long unit;
+        private final boolean keepFirst;
+        private final Long session;
+        private final int slot;
+
+        private ColumnDescriptor(int index, String title, Account account, Kind kind, long unit, boolean keepFirst,
+                                 Long session, int[] slots) {
+            this.index = index;
+            this.title = title;
+            this.account = account;
+            this.kind = kind;
+            this.unit = unit;
+            this.keepFirst = keepFirst;
+            this.session = session;
+            this.slot = slots[kind.getType().ordinal()]++;
+        }
+
+        public static ColumnDescriptor[] compile(Map<Integer, String> header, String[] acceptedAccounts) {
+            List<ColumnDescriptor> columns = new ArrayList<>();
+            int[] slots = new int[Account.Type.values().length];
+
+            new TreeMap<>(header).forEach((column, title) -> {
+                if ((column < FullCatalog.START_OF_DATA_INDEX) || (title == null)) {
+                    return;
+                }
+
+                String[] fields = title.split("-");
+                if (!Arrays.asList(acceptedAccounts).contains(fields[0])) {
+                    return;
+                }
+
+                Account account = Account.valueOf(fields[0]);
+                switch (fields[0]) {
+                    case ITEM_PBR:
+                        columns.add(new ColumnDescriptor(column, title, account, Kind.PBR, 1, false, null, slots));
+                        return;
+
+                    case ITEM_MARKET_CAPITALIZATION:
+                        columns.add(new ColumnDescriptor(column, title, account, Kind.MARKET_CAPITALIZATION, 1, false, null, slots));
+                        return;
+                }
+
+                Long session = (fields.length > 1) ? toSession(fields[0], fields[1]) : null;
+                if (session == null) {
+                    return;
+                }
+
+                switch (fields[0]) {
+                    case ITEM_YEARLY_SALES:
+                    case ITEM_QUARTERLY_SALES:
+                        columns.add(new ColumnDescriptor(column, title, account, Kind.LONG, DEFAULT_UNIT, true, session, slots));
+                        break;
+
+                    case ITEM_ROE:
+                    case ITEM_QUARTERLY_ROE:
+                        columns.add(new ColumnDescriptor(column, title, account, Kind.PERCENT, 1, true, session, slots));
+                        break;
+
+                    case ITEM_RATING:
+                        columns.add(new ColumnDescriptor(column, title, account, Kind.STRING, 1, false, session, slots));
+                        break;
+
+                    default:
+                        columns.add(new ColumnDescriptor(column, title, account, Kind.LONG, 1, true, session, slots));
+                }
+            });
+
+            return  columns.toArray(new ColumnDescriptor[0]);
+        }
+
+        private static Long toSession(String account, String period) {
+            Long session = null;
+            if (account.equals(ITEM_RATING) && period.matches("\\d\\d")) {
+                session = (2020 + Long.parseLong(period) / 10) * 100 + Long.parseLong(period) % 10 * 3;
+            } else if (account.equals(ITEM_RATING) && period.matches("\\d\\d\\d\\d\\d")) {
+                session = Long.parseLong(period) / 10 * 100 + Long.parseLong(period) % 10 * 3;
+            } else if (period.matches("\\d\\d\\d\\d") || period.matches("\\d\\d\\d\\d\\d\\d")) {
+                session = Long.parseLong(period);
+            }
+
+            return  ((session != null) && FinanceSeries.isValidSession(session)) ? session : null;
+        }
+
+        public int getIndex() {
+            return  this.index;
+        }
+
+        public String getTitle() {
+            return  this.title;
+        }
+
+        public Account getAccount() {
+            return  this.account;
+        }
+
+        public Kind getKind() {
+            return  this.kind;
+        }
+
+        public long getUnit() {
+            return  this.unit;
+        }
+
+        public boolean isKeepFirst() {
+            return  this.keepFirst;
+        }
+
+        public Long getSession() {
+            return  this.session;
+        }
+
+        public int getSlot() {
+            return  this.slot;
+        }
+    }
+
+    static class CatalogSheetContext extends SheetContext {
+        private final ColumnDescriptor[] columns;
+        private final int[] slotCounts;
+
+        public CatalogSheetContext(String sheetName, Map<Integer, String> header, ColumnDescriptor[] columns) {
+            super(sheetName, header);
+            this.columns = columns;
+            this.slotCounts = new int[Account.Type.values().length];
+            for(ColumnDescriptor column : columns) {
+                this.slotCounts[column.getKind().getType().ordinal()]++;
+            }
+        }
+
+        public ColumnDescriptor[] getColumns() {
+            return  this.columns;
+        }
+
+        public int getSlotCount(Account.Type type) {
+            return  this.slotCounts[type.ordinal()];
+        }
+    }
+
     static class DataRow {
 
         private final Row row;
@@ -84,6 +252,93 @@ public class FullCatalog extends ExcelFile {
         }
     }
 
+    static class ExportLayout {
+        private final long[] years;
+        private final long[] fullQuarterlies;
+        private final long[] quarters;
+        private final int ratingColumn;
+        private final int yearlyRoeColumn;
+        private final int pbrColumn;
+        private final int yearlySalesColumn;
+        private final int quarterlyRoeColumn;
+        private final int quarterlySalesColumn;
+        private final int marketCapitalizationColumn;
+        private final int quarterlyFinanceColumn;
+
+        public ExportLayout(Set<Long> years, Set<Long> quarters) {
+            long maxYear = Collections.max(years);
+            long minYear = Collections.min(years);
+
+            this.years = new long[(int) (maxYear - minYear + 1)];
+            for(int i = 0 ; i < this.years.length ; i++) {
+                this.years[i] = maxYear - i;
+            }
+
+            this.fullQuarterlies = years.stream()
+                    .sorted(Comparator.reverseOrder())
+                    .flatMapToLong(year -> LongStream.of(year * 100 + 12, year * 100 + 9, year * 100 + 6, year * 100 + 3))
+                    .toArray();
+
+            this.quarters = quarters.stream()
+                    .sorted(Comparator.reverseOrder())
+                    .mapToLong(Long::longValue)
+                    .toArray();
+
+            this.ratingColumn = START_OF_DATA_INDEX;
+            this.yearlyRoeColumn = this.ratingColumn + this.fullQuarterlies.length;
+            this.pbrColumn = this.yearlyRoeColumn + this.years.length;
+            this.yearlySalesColumn = this.pbrColumn + 1;
+            this.quarterlyRoeColumn = this.yearlySalesColumn + this.years.length;
+            this.quarterlySalesColumn = this.quarterlyRoeColumn + this.fullQuarterlies.length;
+            this.marketCapitalizationColumn = this.quarterlySalesColumn + this.fullQuarterlies.length;
+            this.quarterlyFinanceColumn = this.marketCapitalizationColumn + 1;
+        }
+
+        public long[] getYears() {
+            return  this.years;
+        }
+
+        public long[] getFullQuarterlies() {
+            return  this.fullQuarterlies;
+        }
+
+        public long[] getQuarters() {
+            return  this.quarters;
+        }
+
+        public int getRatingColumn() {
+            return  this.ratingColumn;
+        }
+
+        public int getYearlyRoeColumn() {
+            return  this.yearlyRoeColumn;
+        }
+
+        public int getPbrColumn() {
+            return  this.pbrColumn;
+        }
+
+        public int getYearlySalesColumn() {
+            return  this.yearlySalesColumn;
+        }
+
+        public int getQuarterlyRoeColumn() {
+            return  this.quarterlyRoeColumn;
+        }
+
+        public int getQuarterlySalesColumn() {
+            return  this.quarterlySalesColumn;
+        }
+
+        public int getMarketCapitalizationColumn() {
+            return  this.marketCapitalizationColumn;
+        }
+
+        public int getQuarterlyFinanceColumn() {
+            return  this.quarterlyFinanceColumn;
+        }
+    }
+
     public static final String TITLE_ASSETS = "자산";
     public static final String TITLE_CAPITAL = "자본";
     public static final String TITLE_COMMENT= "설명";
@@ -153,6 +408,7 @@ public class FullCatalog extends ExcelFile {
     public static final int MARKET_INDEX = 4;
     public static final int COMMENT_INDEX = 5;
     public static final int START_OF_DATA_INDEX = 6;
+    public static final long DEFAULT_UNIT = 100000;
     public static final String MARKET_KOSPI = "KS";
     public static final String MARKET_KOSDAQ = "KQ";
 
@@ -164,8 +420,29 @@ public class FullCatalog extends ExcelFile {
 
     private final long defaultUnit = 1000;
 
+    private int parallelism;
+    private boolean streamingOutput;
+
     public FullCatalog(Map<String, Company> companies) {
         this.companies = companies;
+        this.parallelism = 1;
+        this.streamingOutput = false;
+    }
+
+    public int getParallelism() {
+        return  this.parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public boolean isStreamingOutput() {
+        return  this.streamingOutput;
+    }
+
+    public void setStreamingOutput(boolean streamingOutput) {
+        this.streamingOutput = streamingOutput;
     }
 
     @Override
@@ -246,6 +523,31 @@ public class FullCatalog extends ExcelFile {
         return  titles;
     }
 
+    @Override
+    protected SheetContext createContext(Sheet sheet) {
+        SheetContext context = super.createContext(sheet);
+
+        return  new CatalogSheetContext(context.getSheetName(), context.getHeader(),
+                ColumnDescriptor.compile(context.getHeader(), this.acceptedAccounts));
+    }
+
+    @Override
+    protected boolean isSheetParallel() {
+        return  false;
+    }
+
+    @Override
+    protected BitSet getColumnProjection(SheetContext context) {
+        BitSet projection = new BitSet();
+        projection.set(0, FullCatalog.START_OF_DATA_INDEX);
+
+        for(ColumnDescriptor column : ((CatalogSheetContext) context).getColumns()) {
+            projection.set(column.getIndex());
+        }
+
+        return  projection;
+    }
+
     @Override
     protected boolean isHeader(Row row) {
         return  (row.getRowNum() < 3);
@@ -260,169 +562,250 @@ public class FullCatalog extends ExcelFile {
     }
 
     @Override
-    protected void load(Row row) {
+    protected Runnable parse(SheetContext context, Row row) {
         DataRow dataRow = new DataRow(row);
 
         String itemCode = dataRow.getItemCode();
+        String market = dataRow.getMarket();
+        String name = dataRow.getName();
+        String industryCode = dataRow.getIndustryCode();
+
+        if ((this.getFilter() != null) && !this.accept(market, itemCode, name, industryCode)) {
+            return  null;
+        }
+
+        String category = dataRow.getCategory();
+        String comment = dataRow.getComment();
+
+        CatalogSheetContext catalogContext = (CatalogSheetContext) context;
+        ColumnDescriptor[] columns = catalogContext.getColumns();
+        long[] longs = new long[catalogContext.getSlotCount(Account.Type.LONG)];
+        double[] doubles = new double[catalogContext.getSlotCount(Account.Type.DOUBLE)];
+        String[] strings = new String[catalogContext.getSlotCount(Account.Type.STRING)];
+        BitSet parsed = new BitSet(columns.length);
+        Exception[] errors = this.parse(columns, row, longs, doubles, strings, parsed);
 
-        Company company;
+        return  () -> {
+            Company company = getOrCreateCompany(this.companies, itemCode, code -> new Company(market, code,
+                    name, industryCode, category));
 
-        if (this.companies.containsKey(itemCode)) {
-            company = this.companies.get(itemCode);
-            if (!company.getName().equals(dataRow.getName())) {
-                company.setName(dataRow.getName());
+            synchronized (company) {
+                if (!company.getName().equals(name)) {
+                    company.setName(name);
+                }
+
+                company.setComment(comment);
+                this.merge(columns, longs, doubles, strings, parsed, errors, company);
             }
-        } else {
-            company = new Company(dataRow.getMarket(), itemCode, dataRow.getName(),
-                    dataRow.getIndustryCode(), dataRow.getCategory());
-            this.companies.put(itemCode, company);
-        }
-
-        company.setComment(dataRow.getComment());
-
-        row.forEach(cell -> {
-            if (FullCatalog.START_OF_DATA_INDEX <= cell.getColumnIndex() && header.containsKey(cell.getColumnIndex())) {
-                String[] fields = header.get(cell.getColumnIndex()).split("-");
-                if (Arrays.stream(this.acceptedAccounts).anyMatch(account -> account.equals(fields[0]))) {
-                    try {
-                        switch (fields[0]) {
-                            case ITEM_SALES:
-                            case ITEM_INCOME:
-                            case ITEM_CAPITAL: {
-                                if (!company.hasAccount(fields[0], Long.parseLong(fields[1]))) {
-                                    Long sales = this.toLong(cell);
-                                    if (sales != null)
-                                        company.setAccount(fields[0], fields[1], sales);
-                                }
-                            }
-                            break;
-
-                            case ITEM_YEARLY_SALES:
-                            case ITEM_QUARTERLY_SALES: {
-                                if (!company.hasAccount(fields[0], Long.parseLong(fields[1]))) {
-                                    Long sales = toDefaultUnit(this.toLong(cell));
-                                    if (sales != null)
-                                        company.setAccount(fields[0], fields[1], sales);
-                                }
-                            }
-                            break;
-
-                            case ITEM_ROE:
-                            case ITEM_QUARTERLY_ROE: {
-                                if (!company.hasAccount(fields[0], Long.parseLong(fields[1]))) {
-                                    Double roe = this.toPercent(cell);
-                                    if (roe != null) {
-                                        company.setAccount(fields[0], fields[1], roe);
-                                    }
-                                }
-                            }
-                            break;
-
-                            case ITEM_RATING: {
-                                if (fields[1].matches("\\d\\d")) {
-                                    fields[1] = String.valueOf((2020 + Long.parseLong(fields[1])/10)*100 +  Long.parseLong(fields[1]) % 10 * 3);
-                                } else if (fields[1].matches("\\d\\d\\d\\d\\d")) {
-                                    fields[1] = String.valueOf(Long.parseLong(fields[1])/10*100 +  Long.parseLong(fields[1]) % 10 * 3);
-                                }
-
-                                company.setAccount(fields[0], fields[1], cell.getStringCellValue());
-                            }
-                            break;
-
-                            case ITEM_PBR: {
-                                if (cell.getCellType() == CellType.NUMERIC)
-                                    company.setPbr(cell.getNumericCellValue());
-                            }
-                            break;
-
-                            case ITEM_MARKET_CAPITALIZATION: {
-                                if (cell.getCellType() == CellType.NUMERIC)
-                                    company.setMarketCapitalization((long) cell.getNumericCellValue());
-                                else if (cell.getCellType() == CellType.STRING)
-                                    company.setMarketCapitalization((long) Long.parseLong(cell.getStringCellValue().replaceAll(",", "")));
-                            }
-                            break;
-
-                            default: {
-                                Long value = this.toLong(cell);
-                                if (value != null) {
-                                    company.setAccount(fields[1], fields[0], value);
-                                }
-                            }
-                        }
-                    } catch (InvalidAttributeValueException | NumberFormatException e) {
-                        this.logger.log(Level.ERROR, "Invalid value for {}-{}-{} : {}", itemCode, fields[0], fields[1], e);
-                    } catch (Exception e) {
-                        this.logger.log(Level.ERROR, "Invalid value for {}-{}-{} : {}", itemCode, fields[0], fields[1], e);
-                    }
+        };
+    }
+
+    private Exception[] parse(ColumnDescriptor[] columns, Row row, long[] longs, double[] doubles, String[] strings,
+                              BitSet parsed) {
+        Exception[] errors = null;
+        for(int i = 0 ; i < columns.length ; i++) {
+            Cell cell = row.getCell(columns[i].getIndex());
+            if (cell == null) {
+                continue;
+            }
+
+            try {
+                if (this.parse(columns[i], cell, longs, doubles, strings)) {
+                    parsed.set(i);
                 }
+            } catch (Exception e) {
+                if (errors == null) {
+                    errors = new Exception[columns.length];
+                }
+                errors[i] = e;
             }
-        });
+        }
 
-        this.companies.put(itemCode, company);
+        return  errors;
+    }
+
+    private boolean parse(ColumnDescriptor column, Cell cell, long[] longs, double[] doubles, String[] strings) {
+        int slot = column.getSlot();
+        switch (column.getKind()) {
+            case LONG: {
+                if (cell.getCellType() == CellType.NUMERIC) {
+                    longs[slot] = (long) cell.getNumericCellValue() * column.getUnit();
+                    return  true;
+                }
+
+                String value = cell.getStringCellValue();
+                if ((value.length() == 0) || value.equals("N/A")) {
+                    return  false;
+                }
+
+                longs[slot] = (long) Double.parseDouble(value.replace(",", "")) * column.getUnit();
+                return  true;
+            }
+
+            case PERCENT:
+                doubles[slot] = this.toPercent(cell);
+                return  true;
+
+            case STRING:
+                strings[slot] = cell.getStringCellValue();
+                return  true;
+
+            case PBR:
+                if (cell.getCellType() == CellType.NUMERIC) {
+                    doubles[slot] = cell.getNumericCellValue();
+                    return  true;
+                }
+                return  false;
+
+            case MARKET_CAPITALIZATION:
+                if (cell.getCellType() == CellType.NUMERIC) {
+                    longs[slot] = (long) cell.getNumericCellValue();
+                    return  true;
+                } else if (cell.getCellType() == CellType.STRING) {
+                    longs[slot] = Long.parseLong(cell.getStringCellValue().replaceAll(",", ""));
+                    return  true;
+                }
+                return  false;
+        }
+
+        return  false;
+    }
+
+    private void merge(ColumnDescriptor[] columns, long[] longs, double[] doubles, String[] strings, BitSet parsed,
+                       Exception[] errors, Company company) {
+        for(int i = 0 ; i < columns.length ; i++) {
+            ColumnDescriptor column = columns[i];
+            Exception error = (errors != null) ? errors[i] : null;
+            if (!parsed.get(i) && (error == null)) {
+                continue;
+            }
+
+            try {
+                if (column.isKeepFirst() && company.hasAccount(column.getAccount(), column.getSession())) {
+                    continue;
+                }
+
+                if (error != null) {
+                    throw error;
+                }
+
+                int slot = column.getSlot();
+                switch (column.getKind()) {
+                    case PBR:
+                        company.setPbr(doubles[slot]);
+                        break;
+
+                    case MARKET_CAPITALIZATION:
+                        company.setMarketCapitalization(longs[slot]);
+                        break;
+
+                    case PERCENT:
+                        company.putAccount(column.getAccount(), column.getSession(), doubles[slot]);
+                        break;
+
+                    case STRING:
+                        company.putAccount(column.getAccount(), column.getSession(), strings[slot]);
+                        break;
+
+                    default:
+                        company.putAccount(column.getAccount(), column.getSession(), longs[slot]);
+                }
+            } catch (Exception e) {
+                this.logger.log(Level.ERROR, "Invalid value for {}-{} : {}", company.getCode(), column.getTitle(), e);
+            }
+        }
+    }
+
+    static class CalculateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 64;
+
+        private final Company[] companies;
+        private final int from;
+        private final int to;
+
+        CalculateTask(Company[] companies, int from, int to) {
+            this.companies = companies;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= THRESHOLD) {
+                for(int i = this.from ; i < this.to ; i++) {
+                    this.companies[i].calculate();
+                }
+                return;
+            }
+
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new CalculateTask(this.companies, this.from, middle),
+                    new CalculateTask(this.companies, middle, this.to));
+        }
     }
 
     public void calculate() {
-        this.companies.forEach((code, company)->{
-            company.calculate();
-//
-//            List<Long> quarters = company.getQuarterlies().stream().sorted().collect(Collectors.toList());
-//            quarters.forEach(quarter -> {
-//                try {
-//                    Finance finance = company.getFinance(quarter / 100, quarter % 100);
-//
-//                    if ((quarter % 100 / 3) == 1) {
-//                        if (!finance.hasAccount(ITEM_QUARTERLY_SALES) && finance.hasAccount(ITEM_SALES)) {
-//                            finance.setAccount(ITEM_QUARTERLY_SALES, (long) finance.getAccount(ITEM_SALES) / 100000);
-//                        }
-//
-//                        if (!finance.hasAccount(ITEM_QUARTERLY_INCOME) && finance.hasAccount(ITEM_INCOME)) {
-//                            finance.setAccount(ITEM_QUARTERLY_INCOME, (long) finance.getAccount(ITEM_INCOME));
-//                        }
-//
-//
-//                    } else {
-//                        long previousQuarterly = quarter - 3;
-//
-//                        Finance previousFinance = company.getFinance(previousQuarterly / 100, previousQuarterly % 100);
-//
-//                        if (!finance.hasAccount(ITEM_QUARTERLY_SALES)) {
-//                            long sales = (long) finance.getAccount(ITEM_SALES);
-//                            sales -= (long) previousFinance.getAccount(ITEM_SALES);
-//                            finance.setAccount(ITEM_QUARTERLY_SALES, sales / 100000);
-//                        }
-//
-//                        if (!finance.hasAccount(ITEM_QUARTERLY_INCOME)) {
-//                            long income = (long) finance.getAccount(ITEM_INCOME);
-//                            income -= (long) previousFinance.getAccount(ITEM_INCOME);
-//                            finance.setAccount(ITEM_QUARTERLY_INCOME, income);
-//                        }
-//                    }
-//
-//                    if (!finance.hasAccount(ITEM_QUARTERLY_ROE)) {
-//                        if ((Long)finance.getAccount(ITEM_QUARTERLY_INCOME) < 0L && (Long)finance.getAccount(ITEM_CAPITAL) < 0L) {
-//                            finance.setAccount(ITEM_QUARTERLY_ROE, 0.0D);
-//                        } else {
-//                            finance.setAccount(ITEM_QUARTERLY_ROE,
-//                                ((Long) finance.getAccount(ITEM_QUARTERLY_INCOME) * 1.0 / (Long) finance.getAccount(ITEM_CAPITAL)));
-//                        }
-//                    }
-//
-//                } catch (NullPointerException e) {
-//                    this.logger.log(Level.WARN, e);
-//                }
-//            });
-        });
+        if (this.parallelism <= 1) {
+            this.companies.forEach((code, company) -> company.calculate());
+            return;
+        }
+
+        Company[] targets = this.companies.values().toArray(new Company[0]);
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        try {
+            pool.invoke(new CalculateTask(targets, 0, targets.length));
+        } finally {
+            pool.shutdown();
+        }
     }
 
     public void save(String filename) {
-        try(FileWriter output = new FileWriter(filename)) {
-            output.write(this.toJson().toString(4));
+        this.save(filename, filename.endsWith(".gz"));
+    }
+
+    public void save(String filename, boolean compress) {
+        try(OutputStream fileOutput = new FileOutputStream(filename);
+            OutputStream output = compress ? new GZIPOutputStream(fileOutput, 65536) : fileOutput;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 65536)) {
+            this.writeJson(writer);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    List<Company> getSortedCompanies() {
+        if (this.companies instanceof CompanyRegistry) {
+            return  ((CompanyRegistry) this.companies).getSortedCompanies();
+        }
+
+        return  this.companies.values()
+                .stream()
+                .sorted(Comparator.comparing(Company::getCompanyCode))
+                .collect(Collectors.toList());
+    }
+
+    public void writeJson(Writer writer) throws IOException {
+        List<Company> sortedCompanies = this.getSortedCompanies();
+
+        writer.write('{');
+        for(int i = 0 ; i < sortedCompanies.size() ; i++) {
+            Company company = sortedCompanies.get(i);
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write("\n    ");
+            writer.write(JSONObject.quote(company.getCode()));
+            writer.write(": ");
+            company.toJson().write(writer, 4, 4);
+        }
+
+        if (!sortedCompanies.isEmpty()) {
+            writer.write('\n');
+        }
+        writer.write('}');
+    }
+
     public void createColumn(XSheet xSheet, String title, int row, int rowSize, int column, int columnSize) {
 
         xSheet.addMergedRegion(new CellRangeAddress(row, row+rowSize - 1, column, column + columnSize - 1));
@@ -473,7 +856,7 @@ public class FullCatalog extends ExcelFile {
     }
 
     public void saveToExcel(String filename) throws IOException {
-        try (XWorkbook xWorkbook = new XWorkbook()) {
+        try (XWorkbook xWorkbook = new XWorkbook(this.streamingOutput)) {
 
             CellStyle headerCellStyle = xWorkbook.createCellStyle(CELL_STYLE_HEADER);
 
@@ -566,6 +949,7 @@ public class FullCatalog extends ExcelFile {
 
             Set<Long> years = optionalYears.get();
             Set<Long> quarters = optionalQuarterlies.get();
+            ExportLayout layout = new ExportLayout(years, quarters);
 
             this.createQuarterlyColumns(xSheet, TITLE_RATING, 0, xSheet.getRow(0).getLastCellNum(), years);
             this.createYearlyColumns(xSheet, TITLE_ROE, 0, xSheet.getRow(0).getLastCellNum(), years);
@@ -596,9 +980,7 @@ public class FullCatalog extends ExcelFile {
             xSheet.getRow(1).forEach(cell -> cell.setCellStyle(xSheet.xWorkbook.getCellStyle(CELL_STYLE_HEADER)));
             xSheet.getRow(2).forEach(cell -> cell.setCellStyle(xSheet.xWorkbook.getCellStyle(CELL_STYLE_HEADER)));
 
-            this.companies.values()
-                    .stream()
-                    .sorted(Comparator.comparingInt(x -> Integer.parseInt(x.getCode().substring(1))))
+            this.getSortedCompanies()
                     .forEach(company -> {
                         XRow xRow = xSheet.createXRow(xSheet.getLastRowNum() + 1);
 
@@ -609,31 +991,17 @@ public class FullCatalog extends ExcelFile {
                         xRow.createCell(xRow.getLastCellNum(), CellType.STRING).setCellValue(company.getMarket());
                         xRow.createCell(xRow.getLastCellNum(), CellType.STRING).setCellValue(company.getComment());
 
-                        long maxYear = years.stream().max(Long::compare).get();
-                        long minYear = years.stream().min(Long::compare).get();
-
-                        Set<Long> fullQuarterlies = new TreeSet<>();
-
-                        years.stream().sorted().forEach(year->{
-                            fullQuarterlies.add(year*100+3);
-                            fullQuarterlies.add(year*100+6);
-                            fullQuarterlies.add(year*100+9);
-                            fullQuarterlies.add(year*100+12);
-                        });
-
-                        this.addQuarterlyRating(xRow, company, fullQuarterlies);
-                        this.addYearlyRoe(xRow, company, minYear, maxYear);
-                        this.addPbr(xRow, company);
-                        this.addYearlySales(xRow, company, minYear, maxYear);
-                        this.addQuarterlyRoe(xRow, company, fullQuarterlies);
-                        this.addQuarterlySales(xRow, company, fullQuarterlies);
-                        this.addMarketCapitalization(xRow, company);
-                        this.addQuarterlyFinance(xRow, company, quarters);
+                        this.addQuarterlyRating(xRow, company, layout);
+                        this.addYearlyRoe(xRow, company, layout);
+                        this.addPbr(xRow, company, layout);
+                        this.addYearlySales(xRow, company, layout);
+                        this.addQuarterlyRoe(xRow, company, layout);
+                        this.addQuarterlySales(xRow, company, layout);
+                        this.addMarketCapitalization(xRow, company, layout);
+                        this.addQuarterlyFinance(xRow, company, layout);
                     });
 
-            for(int i = START_OF_DATA_INDEX; i < xSheet.getRow(3).getLastCellNum(); i++) {
-                xSheet.autoSizeColumn(i, true);
-            }
+            xSheet.setColumnWidths(START_OF_DATA_INDEX, xSheet.getLastCellNum());
 
 
             try (FileOutputStream output = new FileOutputStream(filename)) {
@@ -644,23 +1012,29 @@ public class FullCatalog extends ExcelFile {
         }
     }
 
-    public void addQuarterlyRating(XRow xRow, Company company, Set<Long> fullQuarterlies) {
-        Map<Long, Object> ratings = company.getQuarterlyItems(ITEM_RATING);
-        fullQuarterlies.stream().sorted(Comparator.reverseOrder()).forEach(fullQuarterly->{
-            Cell cell = xRow.createCell(xRow.getLastCellNum(), CellType.STRING);
-            ratings.computeIfPresent(fullQuarterly, (fq, r)->{cell.setCellValue((String) r); return r; });
-        });
+    public void addQuarterlyRating(XRow xRow, Company company, ExportLayout layout) {
+        long[] fullQuarterlies = layout.getFullQuarterlies();
+        for(int i = 0 ; i < fullQuarterlies.length ; i++) {
+            Cell cell = xRow.createCell(layout.getRatingColumn() + i, CellType.STRING);
+            Finance finance = company.getQuarterlyFinancial().get(fullQuarterlies[i]);
+            if ((finance != null) && finance.hasAccount(Account.RATING)) {
+                cell.setCellValue(finance.getString(Account.RATING));
+            }
+        }
     }
 
 
-    public void addYearlySales(XRow xRow, Company company, long minYear, long maxYear) {
-        for (long year = maxYear; year >= minYear; year--) {
-            Cell cell = xRow.createCell(xRow.getLastCellNum(), CellType.NUMERIC);
+    public void addYearlySales(XRow xRow, Company company, ExportLayout layout) {
+        long[] years = layout.getYears();
+        for(int i = 0 ; i < years.length ; i++) {
+            long year = years[i];
+            Cell cell = xRow.createCell(layout.getYearlySalesColumn() + i, CellType.NUMERIC);
             cell.setCellStyle(xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_CURRENCY));
-            try {
-                cell.setCellValue((long)company.getAccount(ITEM_SALES, year));
-            } catch (NullPointerException ignore) {
-                Map<Long, Object> values = company.getValues(ITEM_QUARTERLY_SALES, year * 100 + 12, (year - 1) * 100 + 6);
+            OptionalLong sales = company.findLong(Account.SALES, year);
+            if (sales.isPresent()) {
+                cell.setCellValue(sales.getAsLong());
+            } else {
+                Map<Long, Object> values = company.getValues(Account.QUARTERLY_SALES, year * 100 + 12, (year - 1) * 100 + 6);
                 if (values.size() >= 4) {
                     Set<Long> quarterSales = values.keySet()
                             .stream()
@@ -677,18 +1051,17 @@ public class FullCatalog extends ExcelFile {
     }
 
 
-    public void addYearlyRoe(XRow xRow, Company company, long minYear, long maxYear) {
-        for (long year = maxYear; year >= minYear; year--) {
-            Cell cell = xRow.createCell(xRow.getLastCellNum(), CellType.NUMERIC);
+    public void addYearlyRoe(XRow xRow, Company company, ExportLayout layout) {
+        long[] years = layout.getYears();
+        for(int i = 0 ; i < years.length ; i++) {
+            long year = years[i];
+            Cell cell = xRow.createCell(layout.getYearlyRoeColumn() + i, CellType.NUMERIC);
             Double roe = null;
-            try {
-                if (year < 2020) {
-                    roe = (Double) company.getAccount(ITEM_ROE, year);
-                } else {
-                    throw new NullPointerException();
-                }
-            } catch(NullPointerException ignore) {
-                Map<Long, Object> values = company.getValues(ITEM_QUARTERLY_ROE, year * 100 + 12, (year - 1) * 100 + 6);
+            OptionalDouble yearlyRoe = (year < 2020) ? company.findDouble(Account.ROE, year) : OptionalDouble.empty();
+            if (yearlyRoe.isPresent()) {
+                roe = yearlyRoe.getAsDouble();
+            } else {
+                Map<Long, Object> values = company.getValues(Account.QUARTERLY_ROE, year * 100 + 12, (year - 1) * 100 + 6);
                 if (values.size() >= 4) {
                     AtomicReference<Double> sum = new AtomicReference<>((double) 0);
                     values.keySet()
@@ -712,23 +1085,25 @@ public class FullCatalog extends ExcelFile {
         }
     }
 
-    public void addPbr(XRow xRow, Company company) {
-        Cell cell = xRow.createCell(xRow.getLastCellNum(), CellType.NUMERIC);
+    public void addPbr(XRow xRow, Company company, ExportLayout layout) {
+        Cell cell = xRow.createCell(layout.getPbrColumn(), CellType.NUMERIC);
         cell.setCellValue(company.getPbr());
         cell.setCellStyle(xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_PBR));
     }
 
-    public void addMarketCapitalization(XRow xRow, Company company) {
-        Cell cell = xRow.createCell(xRow.getLastCellNum(), CellType.NUMERIC);
+    public void addMarketCapitalization(XRow xRow, Company company, ExportLayout layout) {
+        Cell cell = xRow.createCell(layout.getMarketCapitalizationColumn(), CellType.NUMERIC);
         cell.setCellValue(toHundredMillionUnit(company.getMarketCapitalization()));
         cell.setCellStyle(xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_CURRENCY));
     }
 
-    public void addQuarterlyRoe(XRow xRow, Company company, Set<Long> fullQuarterlies) {
-        fullQuarterlies.stream().sorted(Comparator.reverseOrder()).forEach(quarter-> {
-            Cell cell = xRow.createCell(xRow.getLastCellNum(), CellType.NUMERIC);
-            if (company.hasAccount(ITEM_QUARTERLY_ROE, quarter)) {
-                double quarterlyRoe = (double)company.getAccount(ITEM_QUARTERLY_ROE, quarter);
+    public void addQuarterlyRoe(XRow xRow, Company company, ExportLayout layout) {
+        long[] fullQuarterlies = layout.getFullQuarterlies();
+        for(int i = 0 ; i < fullQuarterlies.length ; i++) {
+            Cell cell = xRow.createCell(layout.getQuarterlyRoeColumn() + i, CellType.NUMERIC);
+            OptionalDouble optionalRoe = company.findDouble(Account.QUARTERLY_ROE, fullQuarterlies[i]);
+            if (optionalRoe.isPresent()) {
+                double quarterlyRoe = optionalRoe.getAsDouble();
                 cell.setCellValue(quarterlyRoe);
                 if (quarterlyRoe >= 0) {
                     cell.setCellStyle(xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_ROE));
@@ -736,66 +1111,60 @@ public class FullCatalog extends ExcelFile {
                     cell.setCellStyle(xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_NEGATIVE_ROE));
                 }
             }
-        });
+        }
     }
 
-    public void addQuarterlySales(XRow xRow, Company company, Set<Long> fullQuarterlies) {
-        Optional<Long> optionalMaxFullQuarterly = fullQuarterlies.stream().max(Long::compare);
-        Optional<Long> optionalMinFullQuarterly = fullQuarterlies.stream().min(Long::compare);
-
-        if (optionalMaxFullQuarterly.isPresent()&& optionalMinFullQuarterly.isPresent()) {
-            fullQuarterlies.stream().sorted(Comparator.reverseOrder()).forEach(quarter -> {
-                Cell cell = xRow.createCell(xRow.getLastCellNum(), CellType.NUMERIC);
-                if (company.hasAccount(ITEM_QUARTERLY_SALES, quarter)) {
-                    cell.setCellValue(toHundredMillionUnit((long) company.getAccount(ITEM_QUARTERLY_SALES, quarter)));
-                    cell.setCellStyle(xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_CURRENCY));
-                }
-                ;
-            });
+    public void addQuarterlySales(XRow xRow, Company company, ExportLayout layout) {
+        long[] fullQuarterlies = layout.getFullQuarterlies();
+        for(int i = 0 ; i < fullQuarterlies.length ; i++) {
+            Cell cell = xRow.createCell(layout.getQuarterlySalesColumn() + i, CellType.NUMERIC);
+            OptionalLong sales = company.findLong(Account.QUARTERLY_SALES, fullQuarterlies[i]);
+            if (sales.isPresent()) {
+                cell.setCellValue(toHundredMillionUnit(sales.getAsLong()));
+                cell.setCellStyle(xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_CURRENCY));
+            }
         }
     }
 
-    public void addQuarterlyFinance(XRow xRow, Company company, Set<Long> quarters) {
-        quarters.stream()
-                .sorted(Comparator.reverseOrder())
-                .forEach(quarter -> {
-                    if (company.getQuarterlyFinancial().containsKey(quarter)) {
-                        Finance finance = company.getQuarterlyFinancial().get(quarter);
-                        xRow.createCell(xRow.getLastCellNum(), CellType.NUMERIC, xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_CURRENCY))
-                                .setCellValue((long) finance.getAccount(ITEM_SALES, 0L));
-
-                        if ((long) finance.getAccount(ITEM_INCOME, 0L) >= 0 ) {
-                            xRow.createCell(xRow.getLastCellNum(), CellType.NUMERIC, xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_CURRENCY))
-                                    .setCellValue((long) finance.getAccount(ITEM_INCOME, 0L));
-                        } else {
-                            xRow.createCell(xRow.getLastCellNum(), CellType.NUMERIC, xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_NEGATIVE_CURRENCY))
-                                    .setCellValue((long) finance.getAccount(ITEM_INCOME, 0L));
-                        }
-
-                        xRow.createCell(xRow.getLastCellNum(), CellType.NUMERIC, xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_CURRENCY))
-                                .setCellValue((long) finance.getAccount(ITEM_CAPITAL, 0L));
-                    } else {
-                        xRow.createCell(xRow.getLastCellNum(), CellType.NUMERIC).setCellValue(0);
-                        xRow.createCell(xRow.getLastCellNum(), CellType.NUMERIC).setCellValue(0);
-                        xRow.createCell(xRow.getLastCellNum(), CellType.NUMERIC).setCellValue(0);
-                    }
-                });
+    public void addQuarterlyFinance(XRow xRow, Company company, ExportLayout layout) {
+        long[] quarters = layout.getQuarters();
+        for(int i = 0 ; i < quarters.length ; i++) {
+            int column = layout.getQuarterlyFinanceColumn() + i * 3;
+            Finance finance = company.getQuarterlyFinancial().get(quarters[i]);
+            if (finance != null) {
+                xRow.createCell(column, CellType.NUMERIC, xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_CURRENCY))
+                        .setCellValue(finance.getLong(Account.SALES, 0L));
+
+                if (finance.getLong(Account.INCOME, 0L) >= 0 ) {
+                    xRow.createCell(column + 1, CellType.NUMERIC, xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_CURRENCY))
+                            .setCellValue(finance.getLong(Account.INCOME, 0L));
+                } else {
+                    xRow.createCell(column + 1, CellType.NUMERIC, xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_NEGATIVE_CURRENCY))
+                            .setCellValue(finance.getLong(Account.INCOME, 0L));
+                }
+
+                xRow.createCell(column + 2, CellType.NUMERIC, xRow.getXSheet().getXWorkbook().getCellStyle(CELL_STYLE_CURRENCY))
+                        .setCellValue(finance.getLong(Account.CAPITAL, 0L));
+            } else {
+                xRow.createCell(column, CellType.NUMERIC).setCellValue(0);
+                xRow.createCell(column + 1, CellType.NUMERIC).setCellValue(0);
+                xRow.createCell(column + 2, CellType.NUMERIC).setCellValue(0);
+            }
+        }
     }
 
     public long toHundredMillionUnit(long value) {
-        return  value / 100000;
+        return  value / DEFAULT_UNIT;
     }
 
     public long toDefaultUnit(long value) {
-        return  value * 100000;
+        return  value * DEFAULT_UNIT;
     }
 
     public JSONObject toJson() {
         JSONObject root = new JSONObject();
 
-        this.companies.values()
-                .stream()
-                .sorted(Comparator.comparingInt(x -> Integer.parseInt(x.getCode().substring(1))))
+        this.getSortedCompanies()
                 .forEach((company)->root.put(company.getCode(), company.toJson())) ;
 
         return  root;
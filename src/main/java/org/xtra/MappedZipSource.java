@@ -0,0 +1,487 @@
+package org.xtra;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.util.ZipEntrySource;
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+
+class MappedZipSource implements ZipEntrySource {
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int UTF8_FLAG = 1 << 11;
+    private static final Charset DEFAULT_CHARSET = Charset.forName("IBM437");
+    private static final String WORKSHEETS_PREFIX = "xl/worksheets/";
+    private static final String SHARED_STRINGS = "xl/sharedStrings.xml";
+    private static final long MAX_INFLATED_SIZE = Integer.MAX_VALUE - 8;
+    private static final long GRACE_ENTRY_SIZE = 100 * 1024;
+
+    private static class MappedEntry {
+        private final ZipArchiveEntry entry;
+        private final long localHeaderOffset;
+
+        MappedEntry(ZipArchiveEntry entry, long localHeaderOffset) {
+            this.entry = entry;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return  this.buffer.hasRemaining() ? (this.buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return  0;
+            } else if (!this.buffer.hasRemaining()) {
+                return  -1;
+            }
+
+            int count = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, count);
+
+            return  count;
+        }
+
+        @Override
+        public int available() {
+            return  this.buffer.remaining();
+        }
+    }
+
+    private static class InflatingInputStream extends InputStream {
+        private final Inflater inflater;
+        private final String name;
+
+        InflatingInputStream(ByteBuffer buffer, String name) {
+            this.inflater = new Inflater(true);
+            this.inflater.setInput(buffer);
+            this.name = name;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] bytes = new byte[1];
+
+            return  (this.read(bytes, 0, 1) == 1) ? (bytes[0] & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return  0;
+            }
+
+            try {
+                while (true) {
+                    int count = this.inflater.inflate(bytes, offset, length);
+                    if (count > 0) {
+                        this.checkInflateRatio();
+                        return  count;
+                    } else if (this.inflater.finished()) {
+                        return  -1;
+                    } else if (this.inflater.needsInput()) {
+                        throw new ZipException("Unexpected end of deflate stream : " + this.name);
+                    } else if (this.inflater.needsDictionary()) {
+                        throw new ZipException("Invalid deflate stream : " + this.name);
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException("Invalid deflate stream " + this.name + " : " + e.getMessage());
+            }
+        }
+
+        private void checkInflateRatio() throws ZipException {
+            long inflatedSize = this.inflater.getBytesWritten();
+            if ((inflatedSize > GRACE_ENTRY_SIZE)
+                    && ((double) this.inflater.getBytesRead() / inflatedSize < ZipSecureFile.getMinInflateRatio())) {
+                throw new ZipException("Inflate ratio of " + this.name + " is below " + ZipSecureFile.getMinInflateRatio());
+            }
+        }
+
+        @Override
+        public void close() {
+            this.inflater.end();
+        }
+    }
+
+    private static class VerifyingInputStream extends InputStream {
+        private final InputStream input;
+        private final ZipArchiveEntry entry;
+        private final CRC32 crc;
+        private long count;
+        private boolean verified;
+
+        VerifyingInputStream(InputStream input, ZipArchiveEntry entry) {
+            this.input = input;
+            this.entry = entry;
+            this.crc = new CRC32();
+            this.count = 0;
+            this.verified = false;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] bytes = new byte[1];
+
+            return  (this.read(bytes, 0, 1) == 1) ? (bytes[0] & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int count = this.input.read(bytes, offset, length);
+            if (count > 0) {
+                this.crc.update(bytes, offset, count);
+                this.count += count;
+                if ((this.count > this.entry.getSize()) || (this.count > ZipSecureFile.getMaxEntrySize())) {
+                    throw new ZipException("Entry is larger than declared : " + this.entry.getName());
+                }
+            } else if (count < 0) {
+                this.verify();
+            }
+
+            return  count;
+        }
+
+        private void verify() throws ZipException {
+            if (this.verified) {
+                return;
+            }
+
+            this.verified = true;
+            if (this.count != this.entry.getSize()) {
+                throw new ZipException("Entry size mismatch : " + this.entry.getName());
+            } else if (this.crc.getValue() != this.entry.getCrc()) {
+                throw new ZipException("CRC mismatch : " + this.entry.getName());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.input.close();
+        }
+    }
+
+    private final MappedByteBuffer buffer;
+    private final Map<String, MappedEntry> entries;
+    private final Map<String, byte[]> inflated;
+    private Runnable closeListener;
+    private LongConsumer releaseListener;
+    private boolean closed;
+
+    MappedZipSource(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to map : " + file);
+            }
+
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.entries = new LinkedHashMap<>();
+        this.inflated = new ConcurrentHashMap<>();
+        this.closed = false;
+
+        this.readCentralDirectory(file);
+    }
+
+    private void readCentralDirectory(File file) throws IOException {
+        int end = this.findEndOfCentralDirectory();
+        if (end < 0) {
+            throw new ZipException("End of central directory not found : " + file);
+        }
+
+        int count = this.buffer.getShort(end + 10) & 0xFFFF;
+        long offset = this.buffer.getInt(end + 16) & 0xFFFFFFFFL;
+        if ((count == 0xFFFF) || (offset == 0xFFFFFFFFL)) {
+            throw new ZipException("ZIP64 archives are not supported : " + file);
+        }
+
+        int position = (int) offset;
+        for(int i = 0 ; i < count ; i++) {
+            if ((position + CENTRAL_DIRECTORY_HEADER_SIZE > this.buffer.limit()) || (this.buffer.getInt(position) != CENTRAL_DIRECTORY_HEADER)) {
+                throw new ZipException("Invalid central directory : " + file);
+            }
+
+            int flags = this.buffer.getShort(position + 8) & 0xFFFF;
+            int method = this.buffer.getShort(position + 10) & 0xFFFF;
+            long crc = this.buffer.getInt(position + 16) & 0xFFFFFFFFL;
+            long compressedSize = this.buffer.getInt(position + 20) & 0xFFFFFFFFL;
+            long size = this.buffer.getInt(position + 24) & 0xFFFFFFFFL;
+            int nameLength = this.buffer.getShort(position + 28) & 0xFFFF;
+            int extraLength = this.buffer.getShort(position + 30) & 0xFFFF;
+            int commentLength = this.buffer.getShort(position + 32) & 0xFFFF;
+            long localHeaderOffset = this.buffer.getInt(position + 42) & 0xFFFFFFFFL;
+
+            byte[] nameBytes = new byte[nameLength];
+            ByteBuffer name = this.buffer.duplicate();
+            name.position(position + CENTRAL_DIRECTORY_HEADER_SIZE);
+            name.get(nameBytes);
+
+            ZipArchiveEntry entry = new ZipArchiveEntry(new String(nameBytes, ((flags & UTF8_FLAG) != 0) ? StandardCharsets.UTF_8 : DEFAULT_CHARSET));
+            entry.setMethod(method);
+            entry.setCrc(crc);
+            entry.setCompressedSize(compressedSize);
+            entry.setSize(size);
+            this.entries.put(entry.getName(), new MappedEntry(entry, localHeaderOffset));
+
+            position += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+    }
+
+    private int findEndOfCentralDirectory() {
+        int last = this.buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        int first = Math.max(0, last - MAX_COMMENT_SIZE);
+        for(int position = last ; position >= first ; position--) {
+            if (this.buffer.getInt(position) == END_OF_CENTRAL_DIRECTORY) {
+                return  position;
+            }
+        }
+
+        return  -1;
+    }
+
+    public static OPCPackage open(File file) throws IOException, InvalidFormatException {
+        return  open(file, 1);
+    }
+
+    public static OPCPackage open(File file, int threads) throws IOException, InvalidFormatException {
+        if (file.length() > Integer.MAX_VALUE) {
+            return  OPCPackage.open(file, PackageAccess.READ);
+        }
+
+        MappedZipSource source = new MappedZipSource(file);
+        try {
+            if (threads > 1) {
+                source.inflate(source.getSheetEntries(), threads);
+            }
+
+            return  OPCPackage.open(source);
+        } catch (IOException | InvalidFormatException | RuntimeException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    void setCloseListener(Runnable closeListener) {
+        this.closeListener = closeListener;
+    }
+
+    void setReleaseListener(LongConsumer releaseListener) {
+        this.releaseListener = releaseListener;
+    }
+
+    long getInflatedSize(List<ZipArchiveEntry> targets) {
+        long size = 0;
+        for(ZipArchiveEntry entry : targets) {
+            if ((entry.getSize() >= 0) && (entry.getSize() <= MAX_INFLATED_SIZE)) {
+                size += entry.getSize();
+            }
+        }
+
+        return  size;
+    }
+
+    List<ZipArchiveEntry> getSheetEntries() {
+        List<ZipArchiveEntry> sheetEntries = new ArrayList<>();
+        this.entries.values().forEach(mappedEntry -> {
+            String name = mappedEntry.entry.getName();
+            if ((name.startsWith(WORKSHEETS_PREFIX) && name.endsWith(".xml")) || name.equals(SHARED_STRINGS)) {
+                sheetEntries.add(mappedEntry.entry);
+            }
+        });
+
+        return  sheetEntries;
+    }
+
+    void inflate(List<ZipArchiveEntry> targets, int threads) throws IOException {
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, targets.size()));
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for(ZipArchiveEntry entry : targets) {
+                results.add(executor.submit(() -> this.readFully(entry)));
+            }
+
+            for(int i = 0 ; i < targets.size() ; i++) {
+                byte[] bytes = results.get(i).get();
+                if (bytes != null) {
+                    this.inflated.put(targets.get(i).getName(), bytes);
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private byte[] readFully(ZipArchiveEntry entry) throws IOException {
+        if ((entry.getSize() < 0) || (entry.getSize() > MAX_INFLATED_SIZE)) {
+            return  null;
+        }
+
+        checkLimits(entry);
+        byte[] bytes = new byte[(int) entry.getSize()];
+        try (InputStream input = this.getMappedInputStream(entry)) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int count = input.read(bytes, offset, bytes.length - offset);
+                if (count < 0) {
+                    break;
+                }
+                offset += count;
+            }
+
+            if ((offset != bytes.length) || (input.read() != -1)) {
+                throw new ZipException("Entry size mismatch : " + entry.getName());
+            }
+        }
+
+        return  bytes;
+    }
+
+    ByteBuffer getData(ZipArchiveEntry entry) throws IOException {
+        MappedEntry mappedEntry = this.entries.get(entry.getName());
+        if (mappedEntry == null) {
+            throw new ZipException("Entry not found : " + entry.getName());
+        }
+
+        int position = (int) mappedEntry.localHeaderOffset;
+        if ((position + LOCAL_FILE_HEADER_SIZE > this.buffer.limit()) || (this.buffer.getInt(position) != LOCAL_FILE_HEADER)) {
+            throw new ZipException("Invalid local header : " + entry.getName());
+        }
+
+        int start = position + LOCAL_FILE_HEADER_SIZE
+                + (this.buffer.getShort(position + 26) & 0xFFFF)
+                + (this.buffer.getShort(position + 28) & 0xFFFF);
+        long end = start + mappedEntry.entry.getCompressedSize();
+        if (end > this.buffer.limit()) {
+            throw new ZipException("Truncated entry : " + entry.getName());
+        }
+
+        ByteBuffer data = this.buffer.duplicate();
+        data.position(start);
+        data.limit((int) end);
+
+        return  data.slice();
+    }
+
+    @Override
+    public Enumeration<? extends ZipArchiveEntry> getEntries() {
+        List<ZipArchiveEntry> list = new ArrayList<>();
+        this.entries.values().forEach(mappedEntry -> list.add(mappedEntry.entry));
+
+        return  Collections.enumeration(list);
+    }
+
+    @Override
+    public ZipArchiveEntry getEntry(String path) {
+        MappedEntry mappedEntry = this.entries.get(path);
+
+        return  (mappedEntry != null) ? mappedEntry.entry : null;
+    }
+
+    @Override
+    public InputStream getInputStream(ZipArchiveEntry entry) throws IOException {
+        byte[] bytes = this.inflated.remove(entry.getName());
+        if (bytes != null) {
+            if (this.releaseListener != null) {
+                this.releaseListener.accept(bytes.length);
+            }
+
+            return  new ByteArrayInputStream(bytes);
+        }
+
+        return  this.getMappedInputStream(entry);
+    }
+
+    private static void checkLimits(ZipArchiveEntry entry) throws ZipException {
+        if (entry.getSize() > ZipSecureFile.getMaxEntrySize()) {
+            throw new ZipException("Entry " + entry.getName() + " exceeds the maximum entry size " + ZipSecureFile.getMaxEntrySize());
+        }
+
+        if ((entry.getSize() > GRACE_ENTRY_SIZE)
+                && ((double) entry.getCompressedSize() / entry.getSize() < ZipSecureFile.getMinInflateRatio())) {
+            throw new ZipException("Inflate ratio of " + entry.getName() + " is below " + ZipSecureFile.getMinInflateRatio());
+        }
+    }
+
+    private InputStream getMappedInputStream(ZipArchiveEntry entry) throws IOException {
+        checkLimits(entry);
+
+        ByteBuffer data = this.getData(entry);
+        switch (entry.getMethod()) {
+            case ZipArchiveEntry.STORED:
+                return  new VerifyingInputStream(new ByteBufferInputStream(data), entry);
+            case ZipArchiveEntry.DEFLATED:
+                return  new VerifyingInputStream(new InflatingInputStream(data, entry.getName()), entry);
+            default:
+                throw new ZipException("Unsupported compression method " + entry.getMethod() + " : " + entry.getName());
+        }
+    }
+
+    @Override
+    public void close() {
+        this.entries.clear();
+        this.inflated.clear();
+        if (!this.closed && (this.closeListener != null)) {
+            this.closeListener.run();
+        }
+        this.closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return  this.closed;
+    }
+}
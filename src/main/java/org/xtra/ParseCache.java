@@ -0,0 +1,100 @@
+package org.xtra;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+class ParseCache {
+    private static final int BUFFER_SIZE = 65536;
+
+    private final Logger logger;
+    private final Path directory;
+
+    ParseCache(String directory) throws IOException {
+        this.logger = LogManager.getLogger();
+        this.directory = Paths.get(directory);
+        Files.createDirectories(this.directory);
+    }
+
+    public Path getEntry(String parser, String filename) {
+        return  this.getEntry(parser, null, filename);
+    }
+
+    public Path getEntry(String parser, String options, String filename) {
+        Path path = Paths.get(filename);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(parser.getBytes(StandardCharsets.UTF_8));
+            if ((options != null) && !options.isEmpty()) {
+                digest.update((byte) 0);
+                digest.update(options.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update(String.valueOf(Files.size(path)).getBytes(StandardCharsets.UTF_8));
+            digest.update(String.valueOf(Files.getLastModifiedTime(path).toMillis()).getBytes(StandardCharsets.UTF_8));
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream input = Files.newInputStream(path)) {
+                int length;
+                while ((length = input.read(buffer)) > 0) {
+                    digest.update(buffer, 0, length);
+                }
+            }
+
+            StringBuilder key = new StringBuilder(parser).append('-');
+            for(byte value : digest.digest()) {
+                key.append(String.format("%02x", value));
+            }
+
+            return  this.directory.resolve(key.append(".snapshot").toString());
+        } catch (NoSuchFileException e) {
+            return  null;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            this.logger.log(Level.WARN, "Can't hash {} : {}", filename, e);
+            return  null;
+        }
+    }
+
+    public boolean replay(Path entry, Map<String, Company> companies) {
+        if ((entry == null) || !Files.isRegularFile(entry)) {
+            return  false;
+        }
+
+        try {
+            CompanySnapshot.load(entry.toString(), companies);
+            this.logger.log(Level.DEBUG, "Cache hit : {}", entry);
+
+            return  true;
+        } catch (IOException e) {
+            this.logger.log(Level.WARN, "Invalid cache entry {} : {}", entry, e);
+            companies.clear();
+
+            return  false;
+        }
+    }
+
+    public void store(Path entry, Map<String, Company> companies) {
+        if (entry == null) {
+            return;
+        }
+
+        try {
+            Path temporary = Files.createTempFile(this.directory, "entry", ".tmp");
+            try {
+                CompanySnapshot.save(companies, temporary.toString());
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            this.logger.log(Level.WARN, "Can't store cache entry {} : {}", entry, e);
+        }
+    }
+}
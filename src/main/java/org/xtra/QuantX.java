@@ -1,9 +1,16 @@
 package org.xtra;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
@@ -11,19 +18,34 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 public class QuantX {
 
+    private final Logger logger;
     private final List<String> fnGuideFilenames;
     private String fullCatalogFilename;
     private String shoppingGuideFilename;
     private String outputFilename;
+    private String jsonFilename;
+    private String loadSnapshotFilename;
+    private String saveSnapshotFilename;
+    private String cacheDirectory;
+    private CompanyFilter filter;
+    private boolean streaming;
+    private boolean streamingOutput;
+    private int threads;
+    private long prefetchBudget;
 
     public QuantX() {
         LocalDate date = LocalDate.now();
         LocalTime time = LocalTime.now();
 
+        this.logger = LogManager.getLogger();
         this.fnGuideFilenames = new LinkedList<>();
+        this.threads = 1;
         this.outputFilename = String.format("output-%d%02d%02d%02d%02d%02d.xlsx",
             date.getYear(), date.getMonthValue(), date.getDayOfMonth(),
             time.getHour(), time.getMinute(), time.getSecond());
@@ -45,26 +67,243 @@ public class QuantX {
         this.outputFilename = filename;
     }
 
+    public void setJsonFilename(String filename) {
+        this.jsonFilename = filename;
+    }
+
+    public void setLoadSnapshotFilename(String filename) {
+        this.loadSnapshotFilename = filename;
+    }
+
+    public void setSaveSnapshotFilename(String filename) {
+        this.saveSnapshotFilename = filename;
+    }
+
+    public void setCacheDirectory(String directory) {
+        this.cacheDirectory = directory;
+    }
+
+    public void setFilter(CompanyFilter filter) {
+        this.filter = filter;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public void setStreamingOutput(boolean streamingOutput) {
+        this.streamingOutput = streamingOutput;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public void setPrefetchBudget(long prefetchBudget) {
+        this.prefetchBudget = prefetchBudget;
+    }
+
     public void run() throws IOException {
 
-        Map<String, Company> companies = new HashMap<>();
+        Map<String, Company> companies = new CompanyRegistry();
+        ParseCache parseCache = (cacheDirectory != null) ? new ParseCache(cacheDirectory) : null;
 
         FullCatalog fullCatalog = new FullCatalog(companies);
-        if (fullCatalogFilename != null) {
-            fullCatalog.load(fullCatalogFilename);
-        }
+        fullCatalog.setStreaming(this.streaming);
+        fullCatalog.setFilter(this.filter);
+        fullCatalog.setParallelism(this.threads);
+        fullCatalog.setThreads(this.threads);
+        fullCatalog.setStreamingOutput(this.streamingOutput);
+        if (loadSnapshotFilename != null) {
+            this.warnIgnoredInputs();
+            CompanySnapshot.load(loadSnapshotFilename, companies);
+            if (filter != null) {
+                companies.values().removeIf(company -> !filter.accept(company));
+            }
+        } else {
+            try (FilePrefetcher prefetcher = this.createPrefetcher()) {
+                fullCatalog.setPrefetcher(prefetcher);
+                if (fullCatalogFilename != null) {
+                    if (parseCache == null) {
+                        fullCatalog.load(fullCatalogFilename);
+                    } else {
+                        this.mergeCompanies(companies, this.loadCached(parseCache, prefetcher, "FullCatalog", fullCatalogFilename, fullCatalogCompanies -> {
+                            FullCatalog cachedFullCatalog = new FullCatalog(fullCatalogCompanies);
+                            cachedFullCatalog.setStreaming(this.streaming);
+                            cachedFullCatalog.setFilter(this.filter);
+                            cachedFullCatalog.setThreads(this.threads);
+                            cachedFullCatalog.setPrefetcher(prefetcher);
+                            cachedFullCatalog.load(fullCatalogFilename);
+                        }));
+                    }
+                }
 
-        for(String fnGuideFilename : fnGuideFilenames) {
-            new FnGuide(companies).load(fnGuideFilename);
+                this.loadFnGuides(companies, parseCache, prefetcher);
+
+                if (shoppingGuideFilename != null)  {
+                    ShoppingGuide shoppingGuide = new ShoppingGuide(companies);
+                    shoppingGuide.setStreaming(this.streaming);
+                    shoppingGuide.setThreads(this.threads);
+                    shoppingGuide.setPrefetcher(prefetcher);
+                    shoppingGuide.load(shoppingGuideFilename);
+                }
+            }
+            fullCatalog.setPrefetcher(null);
         }
 
-        if (shoppingGuideFilename != null)  {
-            new ShoppingGuide(companies).load(shoppingGuideFilename);
+        if (saveSnapshotFilename != null) {
+            CompanySnapshot.save(companies, saveSnapshotFilename);
         }
 
         fullCatalog.calculate();
         fullCatalog.saveToExcel(this.outputFilename);
 
+        if (jsonFilename != null) {
+            fullCatalog.save(jsonFilename);
+        }
+
+    }
+
+    private void warnIgnoredInputs() {
+        if (this.fullCatalogFilename != null) {
+            this.logger.log(Level.WARN, "Full catalog {} is ignored when loading snapshot {}", this.fullCatalogFilename, this.loadSnapshotFilename);
+        }
+
+        this.fnGuideFilenames.forEach(filename ->
+            this.logger.log(Level.WARN, "FN Guide {} is ignored when loading snapshot {}", filename, this.loadSnapshotFilename));
+
+        if (this.shoppingGuideFilename != null) {
+            this.logger.log(Level.WARN, "Shopping guide {} is ignored when loading snapshot {}", this.shoppingGuideFilename, this.loadSnapshotFilename);
+        }
+    }
+
+    private FilePrefetcher createPrefetcher() {
+        if (this.prefetchBudget <= 0) {
+            return  null;
+        }
+
+        List<String> filenames = new ArrayList<>();
+        if (this.fullCatalogFilename != null) {
+            filenames.add(this.fullCatalogFilename);
+        }
+        filenames.addAll(this.fnGuideFilenames);
+        if (this.shoppingGuideFilename != null) {
+            filenames.add(this.shoppingGuideFilename);
+        }
+
+        return  new FilePrefetcher(filenames, this.prefetchBudget, this.threads);
+    }
+
+    private FnGuide createFnGuide(Map<String, Company> companies, FilePrefetcher prefetcher, int threads) {
+        FnGuide fnGuide = new FnGuide(companies);
+        fnGuide.setStreaming(this.streaming);
+        fnGuide.setFilter(this.filter);
+        fnGuide.setThreads(threads);
+        fnGuide.setPrefetcher(prefetcher);
+
+        return  fnGuide;
+    }
+
+    private Map<String, Company> loadCached(ParseCache parseCache, FilePrefetcher prefetcher, String parser, String filename, Consumer<Map<String, Company>> loader) {
+        Map<String, Company> loaded = new HashMap<>();
+        Path entry = parseCache.getEntry(parser, (filter != null) ? filter.toString() : null, filename);
+        if (parseCache.replay(entry, loaded)) {
+            if (prefetcher != null) {
+                prefetcher.discard(filename);
+            }
+
+            return  loaded;
+        }
+
+        loader.accept(loaded);
+        parseCache.store(entry, loaded);
+
+        return  loaded;
+    }
+
+    private Map<String, Company> loadFnGuide(ParseCache parseCache, FilePrefetcher prefetcher, String filename, int threads) {
+        if (parseCache == null) {
+            Map<String, Company> fnGuideCompanies = new HashMap<>();
+            this.createFnGuide(fnGuideCompanies, prefetcher, threads).load(filename);
+
+            return  fnGuideCompanies;
+        }
+
+        return  this.loadCached(parseCache, prefetcher, "FnGuide", filename,
+                fnGuideCompanies -> this.createFnGuide(fnGuideCompanies, prefetcher, threads).load(filename));
+    }
+
+    private void mergeCompanies(Map<String, Company> companies, Map<String, Company> loaded) {
+        loaded.forEach((code, company) -> companies.merge(code, company, (current, added) -> {
+            current.merge(added);
+            return  current;
+        }));
+    }
+
+    private void loadFnGuides(Map<String, Company> companies, ParseCache parseCache, FilePrefetcher prefetcher) throws IOException {
+        if ((this.threads <= 1) || (this.fnGuideFilenames.size() <= 1)) {
+            for(String fnGuideFilename : fnGuideFilenames) {
+                if (parseCache == null) {
+                    this.createFnGuide(companies, prefetcher, this.threads).load(fnGuideFilename);
+                } else {
+                    this.mergeCompanies(companies, this.loadFnGuide(parseCache, prefetcher, fnGuideFilename, this.threads));
+                }
+            }
+            return;
+        }
+
+        int fileThreads = Math.min(this.threads, this.fnGuideFilenames.size());
+        int sheetThreads = Math.max(1, this.threads / fileThreads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(fileThreads);
+        try {
+            List<Future<Map<String, Company>>> results = new ArrayList<>();
+            for(String fnGuideFilename : fnGuideFilenames) {
+                results.add(executor.submit(() -> this.loadFnGuide(parseCache, prefetcher, fnGuideFilename, sheetThreads)));
+            }
+
+            for(Future<Map<String, Company>> result : results) {
+                this.mergeCompanies(companies, result.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static CompanyFilter createFilter(CommandLine commandLine) throws ParseException {
+        CompanyFilter filter = new CompanyFilter();
+        try {
+            if (commandLine.hasOption("m")) {
+                for(String market : commandLine.getOptionValues("m")) {
+                    filter.addMarket(market);
+                }
+            }
+
+            if (commandLine.hasOption("i")) {
+                for(String industryCode : commandLine.getOptionValues("i")) {
+                    filter.addIndustryCode(industryCode);
+                }
+            }
+
+            if (commandLine.hasOption("cd")) {
+                for(String code : commandLine.getOptionValues("cd")) {
+                    filter.addCode(code);
+                }
+            }
+
+            if (commandLine.hasOption("n")) {
+                filter.setNamePattern(commandLine.getOptionValue("n"));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ParseException(e.getMessage());
+        }
+
+        return  filter;
     }
 
     public static void main(String [] args) throws IOException {
@@ -74,6 +313,18 @@ public class QuantX {
         options.addOption(Option.builder("sg").hasArg().argName("Shopping Guide").longOpt("shopping-guide").build());
         options.addOption(Option.builder("fc").hasArg().argName("Full Catalog").longOpt("full-catalog").build());
         options.addOption(Option.builder("o").hasArg().argName("Output").longOpt("output").build());
+        options.addOption(Option.builder("j").hasArg().argName("JSON Output").longOpt("json").build());
+        options.addOption(Option.builder("ls").hasArg().argName("Snapshot").longOpt("load-snapshot").build());
+        options.addOption(Option.builder("ss").hasArg().argName("Snapshot").longOpt("save-snapshot").build());
+        options.addOption(Option.builder("c").hasArg().argName("Cache Directory").longOpt("cache").build());
+        options.addOption(Option.builder("m").hasArgs().valueSeparator(',').argName("Market").longOpt("market").build());
+        options.addOption(Option.builder("i").hasArgs().valueSeparator(',').argName("Industry Code").longOpt("industry").build());
+        options.addOption(Option.builder("cd").hasArgs().valueSeparator(',').argName("Code or Range").longOpt("codes").build());
+        options.addOption(Option.builder("n").hasArg().argName("Name Pattern").longOpt("name").build());
+        options.addOption(Option.builder("st").argName("Streaming").longOpt("streaming").build());
+        options.addOption(Option.builder("so").argName("Streaming Output").longOpt("streaming-output").build());
+        options.addOption(Option.builder("t").hasArg().argName("Threads").longOpt("threads").build());
+        options.addOption(Option.builder("pb").hasArg().argName("Prefetch Budget (MB)").longOpt("prefetch-budget").build());
 
         try {
             CommandLineParser parser = new DefaultParser();
@@ -98,8 +349,40 @@ public class QuantX {
                 quantX.setOutputFilename(commandLine.getOptionValue("o"));
             }
 
+            if (commandLine.hasOption("j")) {
+                quantX.setJsonFilename(commandLine.getOptionValue("j"));
+            }
+
+            if (commandLine.hasOption("ls")) {
+                quantX.setLoadSnapshotFilename(commandLine.getOptionValue("ls"));
+            }
+
+            if (commandLine.hasOption("ss")) {
+                quantX.setSaveSnapshotFilename(commandLine.getOptionValue("ss"));
+            }
+
+            if (commandLine.hasOption("c")) {
+                quantX.setCacheDirectory(commandLine.getOptionValue("c"));
+            }
+
+            CompanyFilter filter = createFilter(commandLine);
+            if (!filter.isEmpty()) {
+                quantX.setFilter(filter);
+            }
+
+            quantX.setStreaming(commandLine.hasOption("st"));
+            quantX.setStreamingOutput(commandLine.hasOption("so"));
+
+            if (commandLine.hasOption("t")) {
+                quantX.setThreads(Integer.parseInt(commandLine.getOptionValue("t")));
+            }
+
+            if (commandLine.hasOption("pb")) {
+                quantX.setPrefetchBudget(Long.parseLong(commandLine.getOptionValue("pb")) * 1024 * 1024);
+            }
+
             quantX.run();
-        } catch (ParseException e) {
+        } catch (ParseException | NumberFormatException e) {
             HelpFormatter helpFormatter = new HelpFormatter();
             helpFormatter.printHelp("QuantX", options);
         }
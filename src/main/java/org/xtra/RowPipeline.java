@@ -0,0 +1,124 @@
+package org.xtra;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.poi.ss.usermodel.Row;
+
+class RowPipeline implements AutoCloseable {
+    public static final int BATCH_SIZE = 256;
+    public static final int QUEUE_CAPACITY = 8;
+
+    interface Parser {
+        Runnable parse(Row row);
+    }
+
+    class Feed {
+        private final Parser parser;
+        private final BlockingQueue<Future<?>> pending;
+        private List<Row> batch;
+
+        Feed(Parser parser) {
+            this.parser = parser;
+            this.pending = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            this.batch = new ArrayList<>(BATCH_SIZE);
+        }
+
+        public void add(Row row) throws IOException {
+            this.batch.add(row);
+            if (this.batch.size() >= BATCH_SIZE) {
+                this.flush();
+            }
+        }
+
+        public void finish() throws IOException {
+            this.flush();
+            while (!this.pending.isEmpty()) {
+                await(this.pending.remove());
+            }
+        }
+
+        private void flush() throws IOException {
+            if (this.batch.isEmpty()) {
+                return;
+            }
+
+            List<Row> rows = this.batch;
+            this.batch = new ArrayList<>(BATCH_SIZE);
+
+            Future<List<Runnable>> parsed = RowPipeline.this.parsers.submit(() -> {
+                List<Runnable> updates = new ArrayList<>(rows.size());
+                for(Row row : rows) {
+                    Runnable update = this.parser.parse(row);
+                    if (update != null) {
+                        updates.add(update);
+                    }
+                }
+
+                return  updates;
+            });
+
+            if (this.pending.remainingCapacity() == 0) {
+                await(this.pending.remove());
+            }
+
+            this.pending.add(RowPipeline.this.merger.submit(() -> {
+                for(Runnable update : parsed.get()) {
+                    update.run();
+                }
+
+                return  null;
+            }));
+        }
+    }
+
+    private final ExecutorService parsers;
+    private final ExecutorService merger;
+
+    RowPipeline(int threads) {
+        this.parsers = Executors.newFixedThreadPool(threads);
+        this.merger = Executors.newSingleThreadExecutor();
+    }
+
+    public Feed createFeed(Parser parser) {
+        return  new Feed(parser);
+    }
+
+    private static void await(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while ((cause instanceof ExecutionException) && (cause.getCause() != null)) {
+                cause = cause.getCause();
+            }
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    @Override
+    public void close() {
+        this.parsers.shutdownNow();
+        this.merger.shutdownNow();
+    }
+}
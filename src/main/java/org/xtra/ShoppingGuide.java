@@ -33,30 +33,44 @@ public class ShoppingGuide extends ExcelFile {
     }
 
     @Override
-    protected void load(Row row) {
+    protected Runnable parse(SheetContext context, Row row) {
         String itemCode = row.getCell(ShoppingGuide.ITEM_CODE_INDEX).toString().trim();
         if (itemCode.matches("[0-9]+")) {
             itemCode = "A" + itemCode;
         } else if (!itemCode.matches("A[0-9]+")) {
-            return;
+            return  null;
         }
 
-        if (!companies.containsKey(itemCode)) {
-            return;
-        }
         Company  company = companies.get(itemCode);
+        if (company == null) {
+            return  null;
+        }
 
+        Long capitalization = null;
+        Double pbr = null;
         try {
-            Long capitalization = toLong(row.getCell(ShoppingGuide.MARKET_CAPITALIZATION));
-            if (capitalization != null) {
-                company.setMarketCapitalization(capitalization * 100000);
-            }
+            capitalization = toLong(row.getCell(ShoppingGuide.MARKET_CAPITALIZATION));
+            pbr = toDouble(row.getCell(ShoppingGuide.PBR_INDEX));
+        } catch(IllegalStateException | NumberFormatException ignore) {
+        }
 
-            Double pbr = toDouble(row.getCell(ShoppingGuide.PBR_INDEX));
-            if (pbr != null) {
-                company.setPbr(pbr);
+        Long parsedCapitalization = capitalization;
+        Double parsedPbr = pbr;
+
+        return  () -> {
+            synchronized (company) {
+                this.merge(company, parsedCapitalization, parsedPbr);
             }
-        } catch(IllegalStateException | NumberFormatException ignore) {
+        };
+    }
+
+    private void merge(Company company, Long capitalization, Double pbr) {
+        if (capitalization != null) {
+            company.setMarketCapitalization(capitalization * 100000);
+        }
+
+        if (pbr != null) {
+            company.setPbr(pbr);
         }
     }
 
@@ -73,6 +87,21 @@ public class ShoppingGuide extends ExcelFile {
         return  this.toJson().toString();
     }
 
+    @Override
+    protected boolean isSheetParallel() {
+        return  false;
+    }
+
+    @Override
+    protected BitSet getColumnProjection(SheetContext context) {
+        BitSet projection = new BitSet();
+        projection.set(ShoppingGuide.ITEM_CODE_INDEX);
+        projection.set(ShoppingGuide.MARKET_CAPITALIZATION);
+        projection.set(ShoppingGuide.PBR_INDEX);
+
+        return  projection;
+    }
+
     @Override
     protected boolean isHeader(Row row) {
         return  (row.getRowNum() < 3) ;
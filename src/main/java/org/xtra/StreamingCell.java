@@ -0,0 +1,277 @@
+package org.xtra;
+
+import java.time.LocalDateTime;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+class StreamingCell implements Cell {
+    private final StreamingRow row;
+    private final int column;
+    private final CellType type;
+    private final double numericValue;
+    private final String stringValue;
+
+    StreamingCell(StreamingRow row, int column) {
+        this(row, column, CellType.BLANK, 0, null);
+    }
+
+    StreamingCell(StreamingRow row, int column, double value) {
+        this(row, column, CellType.NUMERIC, value, null);
+    }
+
+    StreamingCell(StreamingRow row, int column, CellType type, String value) {
+        this(row, column, type, 0, value);
+    }
+
+    private StreamingCell(StreamingRow row, int column, CellType type, double numericValue, String stringValue) {
+        this.row = row;
+        this.column = column;
+        this.type = type;
+        this.numericValue = numericValue;
+        this.stringValue = stringValue;
+    }
+
+    @Override
+    public int getColumnIndex() {
+        return  this.column;
+    }
+
+    @Override
+    public int getRowIndex() {
+        return  this.row.getRowNum();
+    }
+
+    @Override
+    public Sheet getSheet() {
+        return  this.row.getSheet();
+    }
+
+    @Override
+    public Row getRow() {
+        return  this.row;
+    }
+
+    @Override
+    public CellType getCellType() {
+        return  this.type;
+    }
+
+    @Override
+    public CellType getCachedFormulaResultType() {
+        throw new IllegalStateException("Only formula cells have cached results");
+    }
+
+    @Override
+    public double getNumericCellValue() {
+        if (this.type == CellType.NUMERIC) {
+            return  this.numericValue;
+        } else if (this.type == CellType.BLANK) {
+            return  0.0;
+        }
+
+        throw this.typeMismatch(CellType.NUMERIC);
+    }
+
+    @Override
+    public Date getDateCellValue() {
+        if (this.type == CellType.BLANK) {
+            return  null;
+        }
+
+        return  DateUtil.getJavaDate(this.getNumericCellValue());
+    }
+
+    @Override
+    public LocalDateTime getLocalDateTimeCellValue() {
+        if (this.type == CellType.BLANK) {
+            return  null;
+        }
+
+        return  DateUtil.getLocalDateTime(this.getNumericCellValue());
+    }
+
+    @Override
+    public RichTextString getRichStringCellValue() {
+        return  new XSSFRichTextString(this.getStringCellValue());
+    }
+
+    @Override
+    public String getStringCellValue() {
+        if (this.type == CellType.STRING) {
+            return  this.stringValue;
+        } else if (this.type == CellType.BLANK) {
+            return  "";
+        }
+
+        throw this.typeMismatch(CellType.STRING);
+    }
+
+    @Override
+    public boolean getBooleanCellValue() {
+        if (this.type == CellType.BOOLEAN) {
+            return  this.stringValue.equals("1");
+        } else if (this.type == CellType.BLANK) {
+            return  false;
+        }
+
+        throw this.typeMismatch(CellType.BOOLEAN);
+    }
+
+    @Override
+    public byte getErrorCellValue() {
+        if (this.type == CellType.ERROR) {
+            return  FormulaError.forString(this.stringValue).getCode();
+        }
+
+        throw this.typeMismatch(CellType.ERROR);
+    }
+
+    @Override
+    public CellAddress getAddress() {
+        return  new CellAddress(this.getRowIndex(), this.column);
+    }
+
+    @Override
+    public Comment getCellComment() {
+        return  null;
+    }
+
+    @Override
+    public Hyperlink getHyperlink() {
+        return  null;
+    }
+
+    @Override
+    public boolean isPartOfArrayFormulaGroup() {
+        return  false;
+    }
+
+    @Override
+    public CellRangeAddress getArrayFormulaRange() {
+        throw new IllegalStateException("Cell " + this.getAddress() + " is not part of an array formula.");
+    }
+
+    @Override
+    public String getCellFormula() {
+        throw this.typeMismatch(CellType.FORMULA);
+    }
+
+    @Override
+    public CellStyle getCellStyle() {
+        throw new UnsupportedOperationException("Cell styles are not read in streaming mode");
+    }
+
+    @Override
+    @Deprecated
+    public void setCellType(CellType cellType) {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void setBlank() {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void setCellValue(double value) {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void setCellValue(Date value) {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void setCellValue(LocalDateTime value) {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void setCellValue(Calendar value) {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void setCellValue(RichTextString value) {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void setCellValue(String value) {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void setCellValue(boolean value) {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void setCellFormula(String formula) {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void removeFormula() {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void setCellErrorValue(byte value) {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void setCellStyle(CellStyle style) {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void setAsActiveCell() {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void setCellComment(Comment comment) {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void removeCellComment() {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void setHyperlink(Hyperlink link) {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    @Override
+    public void removeHyperlink() {
+        throw new UnsupportedOperationException("Streaming cells are read-only");
+    }
+
+    private IllegalStateException typeMismatch(CellType expected) {
+        return  new IllegalStateException("Cannot get a " + expected + " value from a " + this.type + " cell");
+    }
+
+    public String toString() {
+        switch (this.type) {
+            case NUMERIC:
+                return  String.valueOf(this.numericValue);
+            case STRING:
+            case ERROR:
+                return  this.stringValue;
+            case BOOLEAN:
+                return  this.getBooleanCellValue() ? "TRUE" : "FALSE";
+            default:
+                return  "";
+        }
+    }
+}
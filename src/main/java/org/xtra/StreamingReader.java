@@ -0,0 +1,272 @@
+package org.xtra;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+class StreamingReader implements AutoCloseable {
+
+    interface RowHandler {
+        void startSheet(String sheetName);
+        void row(StreamingRow row);
+        void endSheet();
+
+        default boolean isColumnWanted(int column) {
+            return  true;
+        }
+    }
+
+    private static class SheetContentHandler extends DefaultHandler {
+        private final SharedStrings sharedStrings;
+        private final RowHandler rowHandler;
+        private final StringBuilder value;
+        private StreamingRow row;
+        private int nextRowNum;
+        private int column;
+        private int nextColumn;
+        private String cellType;
+        private boolean hasValue;
+        private boolean skipCell;
+        private boolean inValue;
+        private boolean inInlineString;
+
+        SheetContentHandler(SharedStrings sharedStrings, RowHandler rowHandler) {
+            this.sharedStrings = sharedStrings;
+            this.rowHandler = rowHandler;
+            this.value = new StringBuilder();
+            this.nextRowNum = 0;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row": {
+                    String reference = attributes.getValue("r");
+                    int rowNum = (reference != null) ? Integer.parseInt(reference) - 1 : this.nextRowNum;
+                    this.row = new StreamingRow(rowNum);
+                    this.nextRowNum = rowNum + 1;
+                    this.nextColumn = 0;
+                }
+                break;
+
+                case "c": {
+                    String reference = attributes.getValue("r");
+                    this.column = (reference != null) ? StreamingReader.toColumnIndex(reference) : this.nextColumn;
+                    this.nextColumn = this.column + 1;
+                    this.cellType = attributes.getValue("t");
+                    this.skipCell = !this.rowHandler.isColumnWanted(this.column);
+                    this.hasValue = false;
+                    this.value.setLength(0);
+                }
+                break;
+
+                case "is":
+                    this.inInlineString = true;
+                    break;
+
+                case "v":
+                    this.inValue = !this.skipCell;
+                    this.hasValue = true;
+                    break;
+
+                case "t":
+                    if (this.inInlineString && !this.skipCell) {
+                        this.inValue = true;
+                        this.hasValue = true;
+                    }
+                    break;
+
+                default:
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    this.inValue = false;
+                    break;
+
+                case "is":
+                    this.inInlineString = false;
+                    break;
+
+                case "c":
+                    if (!this.skipCell) {
+                        this.row.addCell(this.createCell());
+                    }
+                    break;
+
+                case "row":
+                    this.rowHandler.row(this.row);
+                    this.row = null;
+                    break;
+
+                default:
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (this.inValue) {
+                this.value.append(ch, start, length);
+            }
+        }
+
+        private StreamingCell createCell() {
+            if (!this.hasValue) {
+                return  new StreamingCell(this.row, this.column);
+            }
+
+            String text = this.value.toString();
+            if (this.cellType == null) {
+                return  new StreamingCell(this.row, this.column, Double.parseDouble(text));
+            }
+
+            switch (this.cellType) {
+                case "s":
+                    return  new StreamingCell(this.row, this.column, CellType.STRING,
+                            this.sharedStrings.getItemAt(Integer.parseInt(text)).getString());
+                case "str":
+                case "inlineStr":
+                    return  new StreamingCell(this.row, this.column, CellType.STRING, text);
+                case "b":
+                    return  new StreamingCell(this.row, this.column, CellType.BOOLEAN, text);
+                case "e":
+                    return  new StreamingCell(this.row, this.column, CellType.ERROR, text);
+                case "d": {
+                    Double date = toExcelDate(text);
+                    if (date == null) {
+                        return  new StreamingCell(this.row, this.column, CellType.STRING, text);
+                    }
+
+                    return  new StreamingCell(this.row, this.column, date);
+                }
+                default:
+                    return  new StreamingCell(this.row, this.column, Double.parseDouble(text));
+            }
+        }
+    }
+
+    private final OPCPackage opcPackage;
+    private final SharedStrings sharedStrings;
+    private final List<String> sheetNames;
+    private final List<PackagePart> sheetParts;
+
+    StreamingReader(String path) throws IOException, OpenXML4JException, SAXException {
+        this(MappedZipSource.open(new File(path)));
+    }
+
+    StreamingReader(OPCPackage opcPackage) throws IOException, OpenXML4JException, SAXException {
+        this.opcPackage = opcPackage;
+        this.sheetNames = new ArrayList<>();
+        this.sheetParts = new ArrayList<>();
+
+        try {
+            this.sharedStrings = new ReadOnlySharedStringsTable(this.opcPackage, false);
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) new XSSFReader(this.opcPackage).getSheetsData();
+            while (sheets.hasNext()) {
+                sheets.next().close();
+                this.sheetNames.add(sheets.getSheetName());
+                this.sheetParts.add(sheets.getSheetPart());
+            }
+        } catch (IOException | OpenXML4JException | SAXException e) {
+            this.opcPackage.revert();
+            throw e;
+        }
+    }
+
+    public int getNumberOfSheets() {
+        return  this.sheetNames.size();
+    }
+
+    public String getSheetName(int index) {
+        return  this.sheetNames.get(index);
+    }
+
+    public void read(RowHandler rowHandler) throws IOException, SAXException {
+        for(int index = 0 ; index < this.getNumberOfSheets() ; index++) {
+            this.read(index, rowHandler);
+        }
+    }
+
+    public void read(int index, RowHandler rowHandler) throws IOException, SAXException {
+        XMLReader xmlReader;
+        try {
+            xmlReader = XMLHelper.newXMLReader();
+        } catch (ParserConfigurationException e) {
+            throw new SAXException(e);
+        }
+
+        try (InputStream sheetStream = this.sheetParts.get(index).getInputStream()) {
+            rowHandler.startSheet(this.sheetNames.get(index));
+            xmlReader.setContentHandler(new SheetContentHandler(this.sharedStrings, rowHandler));
+            xmlReader.parse(new InputSource(sheetStream));
+            rowHandler.endSheet();
+        }
+    }
+
+    static Double toExcelDate(String text) {
+        try {
+            if (text.startsWith("T")) {
+                LocalTime time = LocalTime.parse(text.substring(1), DateTimeFormatter.ISO_TIME);
+
+                return  time.toNanoOfDay() / (double) (24L * 60 * 60 * 1_000_000_000L);
+            }
+
+            LocalDateTime dateTime = text.contains("T")
+                    ? LocalDateTime.parse(text, DateTimeFormatter.ISO_DATE_TIME)
+                    : LocalDate.parse(text, DateTimeFormatter.ISO_DATE).atStartOfDay();
+            double date = DateUtil.getExcelDate(dateTime);
+
+            return  (date >= 0) ? date : null;
+        } catch (DateTimeException e) {
+            return  null;
+        }
+    }
+
+    static int toColumnIndex(String reference) {
+        int column = 0;
+        for (int i = 0 ; i < reference.length() ; i++) {
+            char ch = reference.charAt(i);
+            if (ch < 'A' || 'Z' < ch) {
+                break;
+            }
+
+            column = column * 26 + (ch - 'A' + 1);
+        }
+
+        return  column - 1;
+    }
+
+    @Override
+    public void close() {
+        this.opcPackage.revert();
+    }
+}
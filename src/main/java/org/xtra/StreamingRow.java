@@ -0,0 +1,202 @@
+package org.xtra;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.poi.ss.usermodel.*;
+
+class StreamingRow implements Row {
+    private final int rowNum;
+    private StreamingCell[] cells;
+    private int firstCellNum;
+    private int lastCellNum;
+    private int physicalNumberOfCells;
+
+    StreamingRow(int rowNum) {
+        this.rowNum = rowNum;
+        this.cells = new StreamingCell[16];
+        this.firstCellNum = -1;
+        this.lastCellNum = -1;
+        this.physicalNumberOfCells = 0;
+    }
+
+    void addCell(StreamingCell cell) {
+        int column = cell.getColumnIndex();
+        if (column >= this.cells.length) {
+            this.cells = Arrays.copyOf(this.cells, Math.max(column + 1, this.cells.length * 2));
+        }
+
+        if (this.cells[column] == null) {
+            this.physicalNumberOfCells++;
+        }
+
+        this.cells[column] = cell;
+        if ((this.firstCellNum < 0) || (column < this.firstCellNum)) {
+            this.firstCellNum = column;
+        }
+
+        if (column + 1 > this.lastCellNum) {
+            this.lastCellNum = column + 1;
+        }
+    }
+
+    @Override
+    public int getRowNum() {
+        return  this.rowNum;
+    }
+
+    @Override
+    public Cell getCell(int column) {
+        if ((column < 0) || (column >= this.cells.length)) {
+            return  null;
+        }
+
+        return  this.cells[column];
+    }
+
+    @Override
+    public Cell getCell(int column, MissingCellPolicy policy) {
+        Cell cell = this.getCell(column);
+        switch (policy) {
+            case RETURN_BLANK_AS_NULL:
+                return  ((cell != null) && (cell.getCellType() == CellType.BLANK)) ? null : cell;
+            case CREATE_NULL_AS_BLANK:
+                return  (cell != null) ? cell : new StreamingCell(this, column);
+            default:
+                return  cell;
+        }
+    }
+
+    @Override
+    public short getFirstCellNum() {
+        return  (short) this.firstCellNum;
+    }
+
+    @Override
+    public short getLastCellNum() {
+        return  (short) this.lastCellNum;
+    }
+
+    @Override
+    public int getPhysicalNumberOfCells() {
+        return  this.physicalNumberOfCells;
+    }
+
+    @Override
+    public Iterator<Cell> cellIterator() {
+        return  new Iterator<>() {
+            private int next = StreamingRow.this.nextCell(Math.max(StreamingRow.this.firstCellNum, 0));
+
+            @Override
+            public boolean hasNext() {
+                return  this.next < StreamingRow.this.lastCellNum;
+            }
+
+            @Override
+            public Cell next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                Cell cell = StreamingRow.this.cells[this.next];
+                this.next = StreamingRow.this.nextCell(this.next + 1);
+
+                return  cell;
+            }
+        };
+    }
+
+    private int nextCell(int column) {
+        while ((column < this.lastCellNum) && (this.cells[column] == null)) {
+            column++;
+        }
+
+        return  column;
+    }
+
+    @Override
+    public Sheet getSheet() {
+        throw new UnsupportedOperationException("Streaming rows are not attached to a sheet");
+    }
+
+    @Override
+    public Cell createCell(int column) {
+        throw new UnsupportedOperationException("Streaming rows are read-only");
+    }
+
+    @Override
+    public Cell createCell(int column, CellType type) {
+        throw new UnsupportedOperationException("Streaming rows are read-only");
+    }
+
+    @Override
+    public void removeCell(Cell cell) {
+        throw new UnsupportedOperationException("Streaming rows are read-only");
+    }
+
+    @Override
+    public void setRowNum(int rowNum) {
+        throw new UnsupportedOperationException("Streaming rows are read-only");
+    }
+
+    @Override
+    public void setHeight(short height) {
+        throw new UnsupportedOperationException("Streaming rows are read-only");
+    }
+
+    @Override
+    public void setZeroHeight(boolean zeroHeight) {
+        throw new UnsupportedOperationException("Streaming rows are read-only");
+    }
+
+    @Override
+    public boolean getZeroHeight() {
+        throw new UnsupportedOperationException("Row formatting is not read in streaming mode");
+    }
+
+    @Override
+    public void setHeightInPoints(float height) {
+        throw new UnsupportedOperationException("Streaming rows are read-only");
+    }
+
+    @Override
+    public short getHeight() {
+        throw new UnsupportedOperationException("Row formatting is not read in streaming mode");
+    }
+
+    @Override
+    public float getHeightInPoints() {
+        throw new UnsupportedOperationException("Row formatting is not read in streaming mode");
+    }
+
+    @Override
+    public boolean isFormatted() {
+        return  false;
+    }
+
+    @Override
+    public CellStyle getRowStyle() {
+        return  null;
+    }
+
+    @Override
+    public void setRowStyle(CellStyle style) {
+        throw new UnsupportedOperationException("Streaming rows are read-only");
+    }
+
+    @Override
+    public int getOutlineLevel() {
+        throw new UnsupportedOperationException("Row formatting is not read in streaming mode");
+    }
+
+    @Override
+    public void shiftCellsRight(int firstShiftColumnIndex, int lastShiftColumnIndex, int step) {
+        throw new UnsupportedOperationException("Streaming rows are read-only");
+    }
+
+    @Override
+    public void shiftCellsLeft(int firstShiftColumnIndex, int lastShiftColumnIndex, int step) {
+        throw new UnsupportedOperationException("Streaming rows are read-only");
+    }
+}
@@ -0,0 +1,73 @@
+package org.xtra;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+class StringDictionary {
+    public static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final StringDictionary shared = new StringDictionary();
+
+    private final Map<String, Integer> ids;
+    private volatile String[] values;
+    private int size;
+
+    StringDictionary() {
+        this.ids = new ConcurrentHashMap<>();
+        this.values = new String[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    public static StringDictionary getShared() {
+        return  shared;
+    }
+
+    public int getId(String value) {
+        if (value == null) {
+            return  NONE;
+        }
+
+        Integer id = this.ids.get(value);
+        if (id != null) {
+            return  id;
+        }
+
+        synchronized (this) {
+            id = this.ids.get(value);
+            if (id != null) {
+                return  id;
+            }
+
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.size * 2);
+            }
+
+            this.values[this.size] = value;
+            this.ids.put(value, this.size);
+
+            return  this.size++;
+        }
+    }
+
+    public int findId(String value) {
+        if (value == null) {
+            return  NONE;
+        }
+
+        return  this.ids.getOrDefault(value, NONE);
+    }
+
+    public String get(int id) {
+        if (id == NONE) {
+            return  null;
+        }
+
+        return  this.values[id];
+    }
+
+    public synchronized int size() {
+        return  this.size;
+    }
+}